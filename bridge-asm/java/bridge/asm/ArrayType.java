@@ -2,65 +2,73 @@ package bridge.asm;
 
 import org.objectweb.asm.Type;
 
-import java.util.Map;
-
 import static org.objectweb.asm.Opcodes.*;
 import static org.objectweb.asm.Type.getType;
 
 public final class ArrayType extends KnownType {
+    private static final String OBJECT = "Ljava/lang/Object;", CLONEABLE = "Ljava/lang/Cloneable;", SERIALIZABLE = "Ljava/io/Serializable;";
     public final KnownType root, element;
     public final int depth;
+    private final TypeMap types;
 
-    ArrayType(Map<Type, KnownType> arrays, TypeMap types, Type type, Class<?> loaded) {
+    // The supertypes of an array are derived from its root when they are requested, so nothing is built up front
+    ArrayType(TypeMap types, Type type, KnownType root, KnownType element) {
         super(type);
-        int depth = 0;
-        final String desc = type.getDescriptor();
-        final KnownType root;
-        if (loaded != null) {
-            while (loaded.isArray()) {
-                loaded = loaded.getComponentType();
-                ++depth;
-            }
-            this.root = root = types.get(loaded);
-        } else {
-            while (desc.charAt(depth) == '[') {
-                ++depth;
-            }
-            this.root = root = types.load(getType(desc.substring(depth)));
-        }
-        if ((this.depth = depth) == 0) {
-            throw new IllegalArgumentException(desc);
-        } else if (depth == 1) {
-            access = ((element = root).access & (ACC_PUBLIC | ACC_PROTECTED | ACC_PRIVATE)) | (ACC_ABSTRACT | ACC_FINAL);
-        } else {
-            access = (element = get(arrays, types, getType(desc.substring(1)))).access;
-        }
-        arrays.put(type, this);
+        this.types = types;
+        this.root = root;
+        this.element = element;
+        this.depth = type.getDimensions();
+    }
+
+    @Override
+    int access() {
+        return (depth == 1)? (root.access() & (ACC_PUBLIC | ACC_PROTECTED | ACC_PRIVATE)) | (ACC_ABSTRACT | ACC_FINAL) : element.access();
+    }
 
-        final String depthd_m1 = desc.substring(1, depth);
-        final String depthd = desc.substring(0, depth);
+    @Override
+    public KnownType supertype() {
+        final String desc = type.getDescriptor();
         final KnownType extended;
-        if ((extended = root.extended) != null) {
-            this.extended = get(arrays, types, getType(depthd + extended.type.getDescriptor()));
+        if ((extended = root.supertype()) != null) {
+            return types.load(getType(desc.substring(0, depth) + extended.type.getDescriptor()));
         } else {
-            this.extended = get(arrays, types, getType(depthd_m1 + "Ljava/lang/Object;"));
+            return types.load(getType(desc.substring(1, depth) + OBJECT));
         }
+    }
+
+    @Override
+    int interfaceCount() {
+        return root.interfaceCount() + 2;
+    }
 
-        int i = 0, length;
-        final KnownType[] interfaces;
-        final KnownType[] implemented = this.implemented = new KnownType[(length = (interfaces = root.implemented).length) + 2];
-        while (i != length) {
-            implemented[i] = get(arrays, types, getType(depthd + interfaces[i++].type.getDescriptor()));
+    @Override
+    KnownType interfaceAt(int index) {
+        final String desc = type.getDescriptor();
+        final int length;
+        if (index < (length = root.interfaceCount())) {
+            return types.load(getType(desc.substring(0, depth) + root.interfaceAt(index).type.getDescriptor()));
+        } else if (index == length) {
+            return types.load(getType(desc.substring(1, depth) + CLONEABLE));
+        } else if (index == length + 1) {
+            return types.load(getType(desc.substring(1, depth) + SERIALIZABLE));
         }
-        implemented[i++] = get(arrays, types, getType(depthd_m1 + "Ljava/lang/Cloneable;"));
-        implemented[i]   = get(arrays, types, getType(depthd_m1 + "Ljava/io/Serializable;"));
+        throw new IndexOutOfBoundsException(index);
     }
 
-    private static KnownType get(Map<Type, KnownType> arrays, TypeMap types, Type type) {
-        if (type.getSort() != Type.ARRAY) return types.load(type);
-        KnownType value = arrays.get(type);
-        if (value != null) return value;
-        return new ArrayType(arrays, types, type, null);
+    @Override
+    public boolean implemented(KnownType type) {
+        if (type == null) return false;
+        if (type.isArray()) {
+            final ArrayType array = (ArrayType) type;
+            if (array.depth == depth) {
+                return (root.isPrimitive() || array.root.isPrimitive())? root.equals(array.root) : root.implemented(array.root);
+            } else if (array.depth > depth) {
+                return false;
+            }
+            type = array.root;
+        }
+        final String desc = type.type.getDescriptor();
+        return desc.equals(OBJECT) || desc.equals(CLONEABLE) || desc.equals(SERIALIZABLE);
     }
 
     @Override
@@ -0,0 +1,122 @@
+package bridge.asm;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Objects;
+
+public final class ClassHeader {
+    private static final String[] EMPTY = new String[0];
+    public final int access;
+    public final String name, extended;
+    public final String[] implemented;
+
+    public ClassHeader(int access, String name, String extended, String[] implemented) {
+        this.access = access;
+        this.name = Objects.requireNonNull(name);
+        this.extended = extended;
+        this.implemented = Objects.requireNonNull(implemented);
+    }
+
+    public static ClassHeader read(InputStream stream) throws IOException {
+        return new Reader(stream).read();
+    }
+
+    public KnownType compile(TypeMap types) {
+        return HierarchyScanner.compile(types, access, name, extended, implemented, null);
+    }
+
+    public void define(TypeMap types) {
+        types.graph().define(name, access, extended, implemented, null, TypeGraph.DEFINED);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static final class Reader {
+        private final InputStream stream;
+        private byte[] buffer = new byte[2048];
+        private int[] pool;
+        private int limit;
+
+        private Reader(InputStream stream) {
+            this.stream = stream;
+        }
+
+        private ClassHeader read() throws IOException {
+            require(10);
+            if (readInt(0) != 0xCAFEBABE) throw new IllegalArgumentException("Not a class file");
+
+            final int[] pool = this.pool = new int[readUnsignedShort(8)];
+            int offset = 10;
+            for (int i = 1; i < pool.length; ++i) {
+                require(offset + 3);
+                pool[i] = offset + 1;
+                if (buffer[offset] == 5 || buffer[offset] == 6) ++i;
+                offset += ConstantFilter.length(buffer, offset);
+            }
+
+            require(offset + 8);
+            final int access = readUnsignedShort(offset);
+            final String name = readClass(readUnsignedShort(offset + 2));
+            final String extended = readClass(readUnsignedShort(offset + 4));
+            final int length = readUnsignedShort(offset + 6);
+            if (length == 0) return new ClassHeader(access, name, extended, EMPTY);
+
+            require((offset += 8) + length * 2);
+            final String[] implemented = new String[length];
+            for (int i = 0; i != length; ++i, offset += 2) {
+                implemented[i] = readClass(readUnsignedShort(offset));
+            }
+            return new ClassHeader(access, name, extended, implemented);
+        }
+
+        private void require(int length) throws IOException {
+            if (limit < length) {
+                final int request = Math.max(length, limit + 512);
+                if (request > buffer.length) {
+                    buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, request));
+                }
+                do {
+                    final int i;
+                    if ((i = stream.read(buffer, limit, request - limit)) < 0) throw new EOFException();
+                    limit += i;
+                } while (limit < length);
+            }
+        }
+
+        private int readUnsignedShort(int offset) {
+            return ConstantFilter.u2(buffer, offset);
+        }
+
+        private int readInt(int offset) {
+            return (readUnsignedShort(offset) << 16) | readUnsignedShort(offset + 2);
+        }
+
+        private String readClass(int index) {
+            if (index == 0) return null;
+            return readUtf(pool[readUnsignedShort(pool[index])]);
+        }
+
+        private String readUtf(int offset) {
+            final byte[] buffer = this.buffer;
+            final int length = readUnsignedShort(offset);
+            final char[] chars = new char[length];
+            int i = offset + 2, size = 0;
+            for (final int end = i + length; i < end;) {
+                final int c = buffer[i++];
+                if ((c & 0x80) == 0) {
+                    chars[size++] = (char) (c & 0x7F);
+                } else if ((c & 0xE0) == 0xC0) {
+                    chars[size++] = (char) (((c & 0x1F) << 6) + (buffer[i++] & 0x3F));
+                } else {
+                    chars[size++] = (char) (((c & 0xF) << 12) + ((buffer[i++] & 0x3F) << 6) + (buffer[i++] & 0x3F));
+                }
+            }
+            return new String(chars, 0, size);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package bridge.asm;
+
+import java.nio.charset.StandardCharsets;
+
+public final class ConstantFilter {
+    private final byte[][] values;
+    private final int max;
+
+    public ConstantFilter(String... values) {
+        final byte[][] bytes = this.values = new byte[values.length][];
+        int max = 0;
+        for (int i = 0; i != values.length; ++i) {
+            max = Math.max(max, (bytes[i] = values[i].getBytes(StandardCharsets.UTF_8)).length);
+        }
+        this.max = max;
+    }
+
+    public boolean matches(byte[] data) {
+        if (data.length < 10) return false;
+        for (int i = 1, count = u2(data, 8), offset = 10; i < count; ++i) {
+            final int length;
+            if (data[offset] == 1 && (length = u2(data, offset + 1)) <= max) {
+                next: for (byte[] value : values) {
+                    if (value.length == length) {
+                        for (int k = 0, start = offset + 3; k != length; ++k) {
+                            if (value[k] != data[start + k]) continue next;
+                        }
+                        return true;
+                    }
+                }
+            } else if (data[offset] == 5 || data[offset] == 6) {
+                ++i;
+            }
+            offset += length(data, offset);
+        }
+        return false;
+    }
+
+    static int length(byte[] buffer, int offset) {
+        switch (buffer[offset]) {
+            case 1:  // Utf8
+                return 3 + u2(buffer, offset + 1);
+            case 3:  // Integer
+            case 4:  // Float
+            case 9:  // Fieldref
+            case 10: // Methodref
+            case 11: // InterfaceMethodref
+            case 12: // NameAndType
+            case 17: // Dynamic
+            case 18: // InvokeDynamic
+                return 5;
+            case 5:  // Long
+            case 6:  // Double
+                return 9;
+            case 15: // MethodHandle
+                return 4;
+            case 7:  // Class
+            case 8:  // String
+            case 16: // MethodType
+            case 19: // Module
+            case 20: // Package
+                return 3;
+            default:
+                throw new IllegalArgumentException("Unknown constant pool tag: " + buffer[offset]);
+        }
+    }
+
+    static int u2(byte[] buffer, int offset) {
+        return ((buffer[offset] & 0xFF) << 8) | (buffer[offset + 1] & 0xFF);
+    }
+}
@@ -12,24 +12,25 @@ public class HierarchicalWriter extends ClassWriter {
 
     @Override
     protected String getCommonSuperClass(String type1, String type2) {
-        if (type1.equals(type2)) {
-            return type1;
+        if (!HierarchyEvents.COMMON_SUPER_CLASS.isEnabled()) return commonSuperClass(type1, type2);
+        final HierarchyEvents.CommonSuperClass event = new HierarchyEvents.CommonSuperClass();
+        event.begin();
+        final String result = commonSuperClass(type1, type2);
+        if (event.shouldCommit()) {
+            event.type1 = type1;
+            event.type2 = type2;
+            event.result = result;
+            event.commit();
         }
-        KnownType a = types.loadClass(type1);
-        KnownType b = types.loadClass(type2);
+        return result;
+    }
 
-        if (b.implemented(a)) {
+    private String commonSuperClass(String type1, String type2) {
+        if (type1.equals(type2)) {
             return type1;
-        } else if (a.implemented(b)) {
-            return type2;
-        } else if (!a.isInterface() && !b.isInterface()) {
-            do {
-                a = a.supertype();
-            } while (!b.extended(a));
-            return a.type.getInternalName();
-        } else {
-            return "java/lang/Object";
         }
+        final KnownType value = types.loadClass(type1).common(types.loadClass(type2));
+        return (value == null)? "java/lang/Object" : value.type.getInternalName();
     }
 
     @Override
@@ -0,0 +1,176 @@
+package bridge.asm;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public final class HierarchyCache {
+    private static final int MAGIC = 0x42524447;
+    private static final int VERSION = 1;
+    public final File file, jar;
+    private final String path;
+    private final long length, modified;
+    private byte[] hash;
+
+    public HierarchyCache(File directory, File jar) {
+        this(directory, jar, null);
+    }
+
+    public HierarchyCache(File directory, File jar, String variant) {
+        this.path = (this.jar = Objects.requireNonNull(jar)).getAbsolutePath();
+        this.file = new File(directory, jar.getName() + ((variant == null)? "" : '-' + variant) + '.' + String.format("%08x", path.hashCode()) + ".hierarchy");
+        this.length = jar.length();
+        this.modified = jar.lastModified();
+    }
+
+    public boolean read(List<String> entries, List<ClassHeader> headers) throws IOException {
+        if (!file.isFile()) return false;
+        final boolean touched;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !path.equals(in.readUTF()) || in.readLong() != length) return false;
+            touched = in.readLong() != modified;
+            final byte[] hash = new byte[in.readUnsignedByte()];
+            in.readFully(hash);
+            if (touched && !MessageDigest.isEqual(hash, hash())) return false;
+            if (!read(in, entries, headers)) return false;
+        } catch (EOFException | UTFDataFormatException e) {
+            return false;
+        }
+        if (touched) write(entries, headers);
+        return true;
+    }
+
+    public static boolean read(File file, List<String> entries, List<ClassHeader> headers) throws IOException {
+        if (!file.isFile()) return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return false;
+            in.readUTF();
+            in.readLong();
+            in.readLong();
+            in.skipNBytes(in.readUnsignedByte());
+            return read(in, entries, headers);
+        } catch (EOFException | UTFDataFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean read(DataInputStream in, List<String> entries, List<ClassHeader> headers) throws IOException {
+        final String[] names;
+        final ClassHeader[] values;
+        try {
+            final String[] strings = new String[in.readInt()];
+            for (int i = 0; i != strings.length; ++i) {
+                strings[i] = in.readUTF();
+            }
+
+            final int length;
+            names = new String[length = in.readInt()];
+            values = new ClassHeader[length];
+            for (int i = 0, k; i != length; ++i) {
+                final int access = in.readInt();
+                final String name = strings[in.readInt()];
+                names[i] = ((k = in.readInt()) < 0)? name + ".class" : strings[k];
+                final String extended = ((k = in.readInt()) < 0)? null : strings[k];
+                final String[] implemented = new String[in.readUnsignedShort()];
+                for (k = 0; k != implemented.length; ++k) {
+                    implemented[k] = strings[in.readInt()];
+                }
+                values[i] = new ClassHeader(access, name, extended, implemented);
+            }
+        } catch (EOFException | UTFDataFormatException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            return false;
+        }
+        entries.addAll(List.of(names));
+        headers.addAll(List.of(values));
+        return true;
+    }
+
+    public void write(List<String> entries, List<ClassHeader> headers) throws IOException {
+        if (entries.size() != headers.size()) throw new IllegalArgumentException("Entry count does not match header count");
+        write(file, path, length, modified, hash(), entries, headers);
+    }
+
+    public static void write(File file, List<String> entries, List<ClassHeader> headers) throws IOException {
+        if (entries.size() != headers.size()) throw new IllegalArgumentException("Entry count does not match header count");
+        write(file, "", 0, 0, new byte[0], entries, headers);
+    }
+
+    private static void write(File file, String path, long size, long modified, byte[] hash, List<String> entries, List<ClassHeader> headers) throws IOException {
+        final int length = entries.size();
+        final File directory = file.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+
+        final Path temp = Files.createTempFile(directory.toPath(), file.getName(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(path);
+                out.writeLong(size);
+                out.writeLong(modified);
+                out.writeByte(hash.length);
+                out.write(hash);
+
+                final Map<String, Integer> strings = new LinkedHashMap<>();
+                for (int i = 0; i != length; ++i) {
+                    final ClassHeader header = headers.get(i);
+                    final String entry = entries.get(i);
+                    strings.putIfAbsent(header.name, strings.size());
+                    if (!entry.equals(header.name + ".class")) strings.putIfAbsent(entry, strings.size());
+                    if (header.extended != null) strings.putIfAbsent(header.extended, strings.size());
+                    for (String implemented : header.implemented) {
+                        strings.putIfAbsent(implemented, strings.size());
+                    }
+                }
+                out.writeInt(strings.size());
+                for (String string : strings.keySet()) {
+                    out.writeUTF(string);
+                }
+
+                out.writeInt(length);
+                for (int i = 0; i != length; ++i) {
+                    final ClassHeader header = headers.get(i);
+                    final String entry = entries.get(i);
+                    out.writeInt(header.access);
+                    out.writeInt(strings.get(header.name));
+                    out.writeInt((entry.equals(header.name + ".class"))? -1 : strings.get(entry));
+                    out.writeInt((header.extended == null)? -1 : strings.get(header.extended));
+                    out.writeShort(header.implemented.length);
+                    for (String implemented : header.implemented) {
+                        out.writeInt(strings.get(implemented));
+                    }
+                }
+            }
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private byte[] hash() throws IOException {
+        byte[] hash;
+        if ((hash = this.hash) == null) {
+            final MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            try (InputStream in = Files.newInputStream(jar.toPath())) {
+                final byte[] buffer = new byte[8192];
+                for (int i; (i = in.read(buffer)) != -1;) {
+                    digest.update(buffer, 0, i);
+                }
+            }
+            this.hash = hash = digest.digest();
+        }
+        return hash;
+    }
+}
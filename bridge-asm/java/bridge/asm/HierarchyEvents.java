@@ -0,0 +1,37 @@
+package bridge.asm;
+
+import jdk.jfr.*;
+
+// Flight recorder events for class hierarchy resolution. Disabled event types are never instrumented, so these cost nothing unless a recording is running.
+final class HierarchyEvents {
+    // These fire for every class or frame merge, so callers check their type before allocating one
+    static final EventType SCAN = EventType.getEventType(Scan.class), COMMON_SUPER_CLASS = EventType.getEventType(CommonSuperClass.class);
+
+    private HierarchyEvents() {}
+
+    @Name("bridge.Scan")
+    @Label("Class Scan")
+    @Category({"Bridge", "Hierarchy"})
+    @Description("A class header visited by a hierarchy scanner")
+    @StackTrace(false)
+    static final class Scan extends Event {
+        @Label("Class Name")
+        String type;
+    }
+
+    @Name("bridge.CommonSuperClass")
+    @Label("Common Super Class")
+    @Category({"Bridge", "Hierarchy"})
+    @Description("A common super class lookup made while computing stack map frames")
+    @StackTrace(false)
+    static final class CommonSuperClass extends Event {
+        @Label("First Type")
+        String type1;
+
+        @Label("Second Type")
+        String type2;
+
+        @Label("Common Type")
+        String result;
+    }
+}
@@ -7,7 +7,8 @@ import org.objectweb.asm.Type;
 import java.util.Objects;
 
 public class HierarchyScanner extends ClassVisitor {
-    private KnownType compiled;
+    private TypeGraph.Node compiled;
+    private HierarchyEvents.Scan event;
     protected final TypeMap types;
     protected int access;
     protected String name, extended;
@@ -33,6 +34,11 @@ public class HierarchyScanner extends ClassVisitor {
 
     @Override
     public void visit(int version, int access, String name, String signature, String extended, String[] implemented) {
+        if (HierarchyEvents.SCAN.isEnabled()) {
+            final HierarchyEvents.Scan event = new HierarchyEvents.Scan();
+            event.begin();
+            this.event = event;
+        }
         super.visit(
                 version,
                 this.access = access,
@@ -46,18 +52,34 @@ public class HierarchyScanner extends ClassVisitor {
     @Override
     public void visitEnd() {
         super.visitEnd();
-        compile().data = data;
+        compile();
+        compiled.data(data);
+
+        final HierarchyEvents.Scan event;
+        if ((event = this.event) != null) {
+            this.event = null;
+            if (event.shouldCommit()) {
+                event.type = name;
+                event.commit();
+            }
+        }
     }
 
     protected final KnownType compile() {
-        KnownType type;
+        TypeGraph.Node type;
         if ((type = compiled) == null) {
             if (name == null) throw new IllegalStateException("Called to compile() before visit()");
-            (compiled = type = types.map.computeIfAbsent(Type.getObjectType(name), KnownType::new))
-                   .extended = (extended == null)? types.get(Object.class) : types.loadClass(extended);
-            type.implemented = types.loadClass(implemented);
-            type.access = access;
-            type.data = data;
+            compiled = type = compile(types, access, name, extended, implemented, data);
+        }
+        return type;
+    }
+
+    static TypeGraph.Node compile(TypeMap types, int access, String name, String extended, String[] implemented, Object data) {
+        final TypeGraph graph = types.graph();
+        final TypeGraph.Node type = graph.view(graph.define(name, access, extended, implemented, data, TypeGraph.DEFINED));
+        if (types.listener != null) {
+            if (extended == null) types.get(Object.class); else types.loadClass(extended);
+            types.loadClass(implemented);
         }
         return type;
     }
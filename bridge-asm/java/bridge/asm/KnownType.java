@@ -3,34 +3,25 @@ package bridge.asm;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.Set;
 
-public class KnownType {
+public abstract class KnownType {
     static final KnownType[] EMPTY = new KnownType[0];
     public final Type type;
-    private Object search;
-    int access;
-    Object data;
-    KnownType extended;
-    KnownType[] implemented;
 
-    KnownType(Type anonymous) {
-        this.type = Objects.requireNonNull(anonymous);
+    KnownType(Type type) {
+        this.type = Objects.requireNonNull(type);
     }
 
-    KnownType(TypeMap types, Type type, Class<?> loaded) {
-        types.map.put(this.type = Objects.requireNonNull(type), this);
-        access = loaded.getModifiers();
+    abstract int access();
 
-        final Class<?> extended;
-        if ((extended = loaded.getSuperclass()) != null) {
-            this.extended = types.get(extended);
-        } else if (loaded != Object.class && !loaded.isPrimitive()) {
-            this.extended = types.get(Object.class);
-        }
-        this.implemented = types.get(loaded.getInterfaces());
-    }
+    abstract int interfaceCount();
+
+    abstract KnownType interfaceAt(int index);
 
     public int hashCode() {
         return type.hashCode();
@@ -61,57 +52,87 @@ public class KnownType {
     }
 
     public Object data() {
-        return data;
+        return null;
     }
 
     public int modifiers() {
-        return access;
+        return access();
     }
 
-    public KnownType supertype() {
-        return extended;
-    }
+    public abstract KnownType supertype();
 
     public boolean extended(KnownType type) {
         if (type != null) {
             KnownType extended = this;
             do {
                 if (type == extended || type.type.equals(extended.type)) return true;
-            } while ((extended = extended.extended) != null);
+            } while ((extended = extended.supertype()) != null);
         }
         return false;
     }
 
     public KnownType[] interfaces() {
-        return implemented.clone();
+        final int length;
+        if ((length = interfaceCount()) == 0) return EMPTY;
+        final KnownType[] interfaces = new KnownType[length];
+        for (int i = 0; i != length; ++i) interfaces[i] = interfaceAt(i);
+        return interfaces;
     }
 
     public boolean implemented(KnownType type) {
-        return type != null && implemented(type, new Object());
-    }
-
-    private boolean implemented(KnownType type, Object search) {
-        final KnownType extended;
-        if (type == this || type.type.equals(this.type)) return true;
-        if ((extended = this.extended) != null && extended.search != search) {
-            if (extended.implemented(type, search)) return true;
-            extended.search = search;
-        }
-        for (KnownType implemented : this.implemented) {
-            if (implemented.search != search) {
-                if (implemented.implemented(type, search)) return true;
-                implemented.search = search;
+        if (type != null && (!type.isArray() || isArray())) {
+            Set<KnownType> visited = null;
+            KnownType[] stack = null;
+            int size = 0;
+            for (KnownType next = this;;) {
+                if (type == next || type.type.equals(next.type)) return true;
+                final KnownType extended = next.supertype();
+                final int length = next.interfaceCount();
+                if (stack == null) {
+                    if (length == 0) {
+                        if ((next = extended) == null) break;
+                        continue;
+                    }
+                    visited = new HashSet<>();
+                    stack = new KnownType[length + 8];
+                }
+                if (size + length >= stack.length) {
+                    stack = Arrays.copyOf(stack, (size + length) * 2);
+                }
+                if (extended != null && visited.add(extended)) stack[size++] = extended;
+                for (int i = 0; i != length; ++i) {
+                    final KnownType value;
+                    if (visited.add(value = next.interfaceAt(i))) stack[size++] = value;
+                }
+                if (size == 0) break;
+                next = stack[--size];
             }
         }
         return false;
     }
 
+    // The type that a frame merges this and another type into, or null if only Object is shared
+    KnownType common(KnownType type) {
+        if (type.implemented(this)) {
+            return this;
+        } else if (implemented(type)) {
+            return type;
+        } else if (!isInterface() && !type.isInterface()) {
+            KnownType value = this;
+            do {
+                value = value.supertype();
+            } while (!type.extended(value));
+            return value;
+        }
+        return null;
+    }
+
     public boolean isPrimitive() {
         return type.getSort() < Type.ARRAY;
     }
 
     public boolean isInterface() {
-        return (access & Opcodes.ACC_INTERFACE) != 0;
+        return (access() & Opcodes.ACC_INTERFACE) != 0;
     }
 
     public boolean isArray() {
@@ -132,12 +153,12 @@ public class KnownType {
         builder.append(type.getClassName()).append(" 0x").append(Integer.toHexString(super.hashCode()).toUpperCase(Locale.ROOT)).append(" {");
         indent += INDENT;
 
-        KnownType extended = this.extended;
+        KnownType extended = supertype();
         if (extended != null) {
             extended.toString(newline(builder, indent).append("extends "), indent);
         }
 
-        KnownType[] implemented = this.implemented;
+        KnownType[] implemented = interfaces();
         if (implemented.length != 0) {
             newline(builder, indent).append("implements {");
             implemented[0].toString(newline(builder, indent += INDENT), indent);
@@ -151,7 +172,7 @@ public class KnownType {
             ((ArrayType) this).element.toString(newline(builder, indent).append("return "), indent);
         }
 
-        Object data = this.data;
+        Object data = data();
         if (data != null) {
             String string = data.toString();
             Class<?> type = data.getClass();
@@ -176,4 +197,34 @@ public class KnownType {
         toString(builder, 0);
         return builder.toString();
     }
+
+    // A primitive type, which has no hierarchy
+    static final class Primitive extends KnownType {
+        private final int access;
+
+        Primitive(Class<?> loaded) {
+            super(Type.getType(loaded));
+            this.access = loaded.getModifiers();
+        }
+
+        @Override
+        int access() {
+            return access;
+        }
+
+        @Override
+        public KnownType supertype() {
+            return null;
+        }
+
+        @Override
+        int interfaceCount() {
+            return 0;
+        }
+
+        @Override
+        KnownType interfaceAt(int index) {
+            throw new IndexOutOfBoundsException(index);
+        }
+    }
 }
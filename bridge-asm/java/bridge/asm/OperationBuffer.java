@@ -0,0 +1,330 @@
+package bridge.asm;
+
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+import java.util.Arrays;
+
+import static org.objectweb.asm.Opcodes.*;
+
+// Records method operations into flat arrays so they can be reordered and replayed later
+// Each operation is an offset into the int pool, which holds its kind, the offset of its references, and its int operands
+public final class OperationBuffer {
+    private static final int CODE = 0, END = 1, FRAME = 2, INSN = 3, INT = 4, VAR = 5, TYPE = 6, FIELD = 7, METHOD = 8, INDY = 9, JUMP = 10,
+            LABEL = 11, LDC = 12, IINC = 13, TABLE = 14, LOOKUP = 15, MULTI = 16, TRY = 17, LOCAL = 18, LINE = 19, MAXS = 20,
+            PARAMETER = 21, PARAMETERS = 22, ATTRIBUTE = 23, TASK = 24;
+    private int[] data = new int[64];
+    private Object[] refs = new Object[16];
+    private int[] order = new int[16];
+    private int length, count, size;
+
+    private int record(int kind, int ints, int objects) {
+        final int op = length;
+        if (length + ints + 2 > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, length + ints + 2));
+        if (count + objects > refs.length) refs = Arrays.copyOf(refs, Math.max(refs.length * 2, count + objects));
+        data[length] = kind;
+        data[length + 1] = count;
+        length += ints + 2;
+        count += objects;
+        return op;
+    }
+
+    private int record(int kind, int value) {
+        final int op = record(kind, 1, 0);
+        data[op + 2] = value;
+        return op;
+    }
+
+    private int record(int kind, int value, Object ref) {
+        final int op = record(kind, 1, 1);
+        data[op + 2] = value;
+        refs[data[op + 1]] = ref;
+        return op;
+    }
+
+    public int code() {
+        return record(CODE, 0, 0);
+    }
+
+    public int end() {
+        return record(END, 0, 0);
+    }
+
+    public int frame(int type, int numLocal, Object[] local, int numStack, Object[] stack) {
+        final int op = record(FRAME, 3, 2), ref = data[op + 1];
+        data[op + 2] = type;
+        data[op + 3] = numLocal;
+        data[op + 4] = numStack;
+        refs[ref] = local;
+        refs[ref + 1] = stack;
+        return op;
+    }
+
+    public int insn(int opcode) {
+        return record(INSN, opcode);
+    }
+
+    public int intInsn(int opcode, int operand) {
+        final int op = record(INT, 2, 0);
+        data[op + 2] = opcode;
+        data[op + 3] = operand;
+        return op;
+    }
+
+    public int varInsn(int opcode, int varIndex) {
+        final int op = record(VAR, 2, 0);
+        data[op + 2] = opcode;
+        data[op + 3] = varIndex;
+        return op;
+    }
+
+    public int typeInsn(int opcode, String type) {
+        return record(TYPE, opcode, type);
+    }
+
+    public int fieldInsn(int opcode, String owner, String name, String descriptor) {
+        final int op = record(FIELD, 1, 3), ref = data[op + 1];
+        data[op + 2] = opcode;
+        refs[ref] = owner;
+        refs[ref + 1] = name;
+        refs[ref + 2] = descriptor;
+        return op;
+    }
+
+    public int methodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+        final int op = record(METHOD, 2, 3), ref = data[op + 1];
+        data[op + 2] = opcode;
+        data[op + 3] = (isInterface)? 1 : 0;
+        refs[ref] = owner;
+        refs[ref + 1] = name;
+        refs[ref + 2] = descriptor;
+        return op;
+    }
+
+    public int invokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object[] bootstrapMethodArguments) {
+        final int op = record(INDY, 0, 4), ref = data[op + 1];
+        refs[ref] = name;
+        refs[ref + 1] = descriptor;
+        refs[ref + 2] = bootstrapMethodHandle;
+        refs[ref + 3] = bootstrapMethodArguments;
+        return op;
+    }
+
+    public int jumpInsn(int opcode, Label label) {
+        return record(JUMP, opcode, label);
+    }
+
+    public int label(Label label) {
+        return record(LABEL, 0, label);
+    }
+
+    public int ldcInsn(Object value) {
+        return record(LDC, 0, value);
+    }
+
+    public int iincInsn(int varIndex, int increment) {
+        final int op = record(IINC, 2, 0);
+        data[op + 2] = varIndex;
+        data[op + 3] = increment;
+        return op;
+    }
+
+    public int tableSwitchInsn(int min, int max, Label dflt, Label[] labels) {
+        final int op = record(TABLE, 2, 2), ref = data[op + 1];
+        data[op + 2] = min;
+        data[op + 3] = max;
+        refs[ref] = dflt;
+        refs[ref + 1] = labels;
+        return op;
+    }
+
+    public int lookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+        final int op = record(LOOKUP, 0, 3), ref = data[op + 1];
+        refs[ref] = dflt;
+        refs[ref + 1] = keys;
+        refs[ref + 2] = labels;
+        return op;
+    }
+
+    public int multiANewArrayInsn(String descriptor, int numDimensions) {
+        return record(MULTI, numDimensions, descriptor);
+    }
+
+    public int tryCatchBlock(Label start, Label end, Label handler, String type) {
+        final int op = record(TRY, 0, 4), ref = data[op + 1];
+        refs[ref] = start;
+        refs[ref + 1] = end;
+        refs[ref + 2] = handler;
+        refs[ref + 3] = type;
+        return op;
+    }
+
+    public int localVariable(String name, String descriptor, String signature, Label start, Label end, int index) {
+        final int op = record(LOCAL, 1, 5), ref = data[op + 1];
+        data[op + 2] = index;
+        refs[ref] = name;
+        refs[ref + 1] = descriptor;
+        refs[ref + 2] = signature;
+        refs[ref + 3] = start;
+        refs[ref + 4] = end;
+        return op;
+    }
+
+    public int lineNumber(int line, Label start) {
+        return record(LINE, line, start);
+    }
+
+    public int maxs(int maxStack, int maxLocals) {
+        final int op = record(MAXS, 2, 0);
+        data[op + 2] = maxStack;
+        data[op + 3] = maxLocals;
+        return op;
+    }
+
+    public int parameter(String name, int access) {
+        return record(PARAMETER, access, name);
+    }
+
+    public int annotableParameterCount(int parameterCount, boolean visible) {
+        final int op = record(PARAMETERS, 2, 0);
+        data[op + 2] = parameterCount;
+        data[op + 3] = (visible)? 1 : 0;
+        return op;
+    }
+
+    public int attribute(Attribute attribute) {
+        return record(ATTRIBUTE, 0, attribute);
+    }
+
+    public int task(Runnable task) {
+        return record(TASK, 0, task);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        return order[index];
+    }
+
+    public void add(int op) {
+        if (size == order.length) order = Arrays.copyOf(order, size * 2);
+        order[size++] = op;
+    }
+
+    public void add(int index, int op) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException(index);
+        if (size == order.length) order = Arrays.copyOf(order, size * 2);
+        System.arraycopy(order, index, order, index + 1, size++ - index);
+        order[index] = op;
+    }
+
+    public int remove(int index) {
+        final int op = get(index);
+        System.arraycopy(order, index + 1, order, index, --size - index);
+        return op;
+    }
+
+    public int removeLast() {
+        return remove(size - 1);
+    }
+
+    public void accept(MethodVisitor mv) {
+        accept(mv, 0, size);
+    }
+
+    public void accept(MethodVisitor mv, int from, int to) {
+        for (int i = from; i < to; ++i) run(order[i], mv);
+    }
+
+    public void run(int op, MethodVisitor mv) {
+        final int[] data = this.data;
+        final Object[] refs = this.refs;
+        final int kind = data[op], ref = data[op + 1];
+        if (kind == TASK) {
+            ((Runnable) refs[ref]).run();
+            return;
+        }
+        if (mv == null) return;
+        switch (kind) {
+            case CODE:
+                mv.visitCode();
+                break;
+            case END:
+                mv.visitEnd();
+                break;
+            case FRAME:
+                mv.visitFrame(data[op + 2], data[op + 3], (Object[]) refs[ref], data[op + 4], (Object[]) refs[ref + 1]);
+                break;
+            case INSN:
+                mv.visitInsn(data[op + 2]);
+                break;
+            case INT:
+                mv.visitIntInsn(data[op + 2], data[op + 3]);
+                break;
+            case VAR:
+                mv.visitVarInsn(data[op + 2], data[op + 3]);
+                break;
+            case TYPE:
+                mv.visitTypeInsn(data[op + 2], (String) refs[ref]);
+                break;
+            case FIELD:
+                mv.visitFieldInsn(data[op + 2], (String) refs[ref], (String) refs[ref + 1], (String) refs[ref + 2]);
+                break;
+            case METHOD:
+                mv.visitMethodInsn(data[op + 2] & ~SOURCE_MASK, (String) refs[ref], (String) refs[ref + 1], (String) refs[ref + 2], data[op + 3] != 0);
+                break;
+            case INDY:
+                mv.visitInvokeDynamicInsn((String) refs[ref], (String) refs[ref + 1], (Handle) refs[ref + 2], (Object[]) refs[ref + 3]);
+                break;
+            case JUMP:
+                mv.visitJumpInsn(data[op + 2], (Label) refs[ref]);
+                break;
+            case LABEL:
+                mv.visitLabel((Label) refs[ref]);
+                break;
+            case LDC:
+                mv.visitLdcInsn(refs[ref]);
+                break;
+            case IINC:
+                mv.visitIincInsn(data[op + 2], data[op + 3]);
+                break;
+            case TABLE:
+                mv.visitTableSwitchInsn(data[op + 2], data[op + 3], (Label) refs[ref], (Label[]) refs[ref + 1]);
+                break;
+            case LOOKUP:
+                mv.visitLookupSwitchInsn((Label) refs[ref], (int[]) refs[ref + 1], (Label[]) refs[ref + 2]);
+                break;
+            case MULTI:
+                mv.visitMultiANewArrayInsn((String) refs[ref], data[op + 2]);
+                break;
+            case TRY:
+                mv.visitTryCatchBlock((Label) refs[ref], (Label) refs[ref + 1], (Label) refs[ref + 2], (String) refs[ref + 3]);
+                break;
+            case LOCAL:
+                mv.visitLocalVariable((String) refs[ref], (String) refs[ref + 1], (String) refs[ref + 2], (Label) refs[ref + 3], (Label) refs[ref + 4], data[op + 2]);
+                break;
+            case LINE:
+                mv.visitLineNumber(data[op + 2], (Label) refs[ref]);
+                break;
+            case MAXS:
+                mv.visitMaxs(data[op + 2], data[op + 3]);
+                break;
+            case PARAMETER:
+                mv.visitParameter((String) refs[ref], data[op + 2]);
+                break;
+            case PARAMETERS:
+                mv.visitAnnotableParameterCount(data[op + 2], data[op + 3] != 0);
+                break;
+            case ATTRIBUTE:
+                mv.visitAttribute((Attribute) refs[ref]);
+                break;
+            default:
+                throw new IllegalStateException("Unknown operation kind: " + kind);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package bridge.asm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+public final class Platform {
+    private static final Map<Integer, Platform> PLATFORMS = new ConcurrentHashMap<>();
+    public static final int RUNTIME = Runtime.version().feature();
+    public final int release;
+    private volatile Index index;
+    private boolean fallback;
+
+    private Platform(int release) {
+        this.release = release;
+    }
+
+    public static Platform current() {
+        return of(RUNTIME);
+    }
+
+    public static Platform of(int release) {
+        if (release <= 0 || release > RUNTIME) release = RUNTIME;
+        return PLATFORMS.computeIfAbsent(release, Platform::new);
+    }
+
+    public ClassHeader find(String name) {
+        try {
+            return index().find(name);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Reads every platform class from a snapshot in the directory, which is written first if it is missing or out of date
+    public synchronized boolean snapshot(File directory) throws IOException {
+        final Index index;
+        if ((index = index()) instanceof Snapshot) return true;
+        final File source = index.source();
+        if (!source.isFile()) return false;
+
+        final HierarchyCache cache = new HierarchyCache(directory, source, "java" + release);
+        final List<String> entries = new ArrayList<>();
+        final List<ClassHeader> headers = new ArrayList<>();
+        final boolean cached;
+        if (!(cached = cache.read(entries, headers))) {
+            index.list(entries, headers);
+            cache.write(entries, headers);
+        }
+        this.index = new Snapshot(source, headers);
+        return cached;
+    }
+
+    public File source() {
+        return index().source();
+    }
+
+    // Whether the running JDK stands in for a release that it has no signatures for
+    public boolean fallback() {
+        index();
+        return fallback;
+    }
+
+    public int size() {
+        final Index index;
+        return ((index = this.index) instanceof Snapshot)? ((Snapshot) index).headers.size() : 0;
+    }
+
+    private Index index() {
+        Index index;
+        if ((index = this.index) == null) synchronized (this) {
+            if ((index = this.index) == null) try {
+                final File symbols;
+                if (release != RUNTIME && (symbols = new File(System.getProperty("java.home"), "lib/ct.sym")).isFile()) {
+                    final Symbols table = new Symbols(symbols, new ZipFile(symbols), Character.toUpperCase(Character.forDigit(release, Character.MAX_RADIX)));
+                    if (!table.entries.isEmpty()) return this.index = table;
+                    table.zip.close();
+                }
+                fallback = release != RUNTIME;
+                this.index = index = new Modules(FileSystems.getFileSystem(URI.create("jrt:/")));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return index;
+    }
+
+    private interface Index {
+        ClassHeader find(String name) throws IOException;
+        File source();
+        void list(List<String> entries, List<ClassHeader> headers) throws IOException;
+    }
+
+    private static final class Snapshot implements Index {
+        private final File source;
+        private final Map<String, ClassHeader> headers;
+
+        private Snapshot(File source, List<ClassHeader> headers) {
+            this.source = source;
+            this.headers = new HashMap<>(headers.size() * 4 / 3 + 1);
+            for (ClassHeader header : headers) this.headers.put(header.name, header);
+        }
+
+        @Override
+        public ClassHeader find(String name) {
+            return headers.get(name);
+        }
+
+        @Override
+        public File source() {
+            return source;
+        }
+
+        @Override
+        public void list(List<String> entries, List<ClassHeader> headers) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    // The running JDK, where each package is linked to the modules that contain it
+    private static final class Modules implements Index {
+        private static final String[] EMPTY = new String[0];
+        private final FileSystem jrt;
+        private final Map<String, String[]> packages = new ConcurrentHashMap<>();
+
+        private Modules(FileSystem jrt) {
+            this.jrt = jrt;
+        }
+
+        private String[] modules(String pkg) throws IOException {
+            String[] modules;
+            if ((modules = packages.get(pkg)) == null) {
+                final List<String> list = new ArrayList<>(1);
+                try (DirectoryStream<Path> links = Files.newDirectoryStream(jrt.getPath("/packages", pkg.replace('/', '.')))) {
+                    for (Path link : links) list.add(link.getFileName().toString());
+                } catch (NoSuchFileException e) {
+                    // Not a platform package
+                }
+                packages.put(pkg, modules = (list.isEmpty())? EMPTY : list.toArray(EMPTY));
+            }
+            return modules;
+        }
+
+        @Override
+        public ClassHeader find(String name) throws IOException {
+            final int i;
+            if ((i = name.lastIndexOf('/')) < 0) return null;
+            for (String module : modules(name.substring(0, i))) {
+                try (InputStream stream = Files.newInputStream(jrt.getPath("/modules", module, name + ".class"))) {
+                    return ClassHeader.read(stream);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public File source() {
+            return new File(System.getProperty("java.home"), "lib/modules");
+        }
+
+        @Override
+        public void list(List<String> entries, List<ClassHeader> headers) throws IOException {
+            try (DirectoryStream<Path> modules = Files.newDirectoryStream(jrt.getPath("/modules"))) {
+                for (Path module : modules) try (Stream<Path> files = Files.walk(module)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        final String name = file.getFileName().toString();
+                        if (!name.endsWith(".class") || name.equals("module-info.class")) continue;
+                        try (InputStream stream = Files.newInputStream(file)) {
+                            final ClassHeader header = ClassHeader.read(stream);
+                            entries.add(header.name + ".class");
+                            headers.add(header);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // The signatures that javac uses for --release, where each entry lists the releases it belongs to
+    private static final class Symbols implements Index {
+        private final File file;
+        private final ZipFile zip;
+        private final Map<String, ZipEntry> entries = new HashMap<>();
+
+        private Symbols(File file, ZipFile zip, char release) {
+            this.file = file;
+            this.zip = zip;
+            for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements();) {
+                final ZipEntry entry = entries.nextElement();
+                final String path = entry.getName();
+                final int releases, module;
+                if (!path.endsWith(".sig") || (releases = path.indexOf('/')) < 0 || path.lastIndexOf(release, releases) < 0
+                        || (module = path.indexOf('/', releases + 1)) < 0) continue;
+                this.entries.put(path.substring(module + 1, path.length() - 4), entry);
+            }
+        }
+
+        @Override
+        public ClassHeader find(String name) throws IOException {
+            final ZipEntry entry;
+            if ((entry = entries.get(name)) == null) return null;
+            try (InputStream stream = zip.getInputStream(entry)) {
+                return ClassHeader.read(stream);
+            }
+        }
+
+        @Override
+        public File source() {
+            return file;
+        }
+
+        @Override
+        public void list(List<String> entries, List<ClassHeader> headers) throws IOException {
+            for (Map.Entry<String, ZipEntry> entry : this.entries.entrySet()) {
+                if (entry.getKey().endsWith("module-info")) continue;
+                try (InputStream stream = zip.getInputStream(entry.getValue())) {
+                    final ClassHeader header = ClassHeader.read(stream);
+                    entries.add(header.name + ".class");
+                    headers.add(header);
+                }
+            }
+        }
+    }
+}
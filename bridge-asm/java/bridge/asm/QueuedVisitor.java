@@ -2,13 +2,12 @@ package bridge.asm;
 
 import org.objectweb.asm.*;
 
-import java.util.LinkedList;
 import java.util.function.Supplier;
 
 import static org.objectweb.asm.Opcodes.*;
 
 public class QueuedVisitor extends MethodVisitor {
-    protected LinkedList<Runnable> ops = new LinkedList<>();
+    protected final OperationBuffer ops = new OperationBuffer();
 
     protected QueuedVisitor(int api) {
         super(api);
@@ -18,10 +17,14 @@ public class QueuedVisitor extends MethodVisitor {
         super(api, delegate);
     }
 
-    public void visitOperation(int opcode, Runnable op) {
+    public void visitOperation(int opcode, int op) {
         ops.add(op);
     }
 
+    public void visitOperation(int opcode, Runnable op) {
+        visitOperation(opcode, ops.task(op));
+    }
+
     // --- only notification posters beyond this point ---
 
     @Override
@@ -36,47 +39,47 @@ public class QueuedVisitor extends MethodVisitor {
 
     @Override
     public void visitAnnotableParameterCount(int parameterCount, boolean visible) {
-        visitOperation(-1, () -> super.visitAnnotableParameterCount(parameterCount, visible));
+        visitOperation(-1, ops.annotableParameterCount(parameterCount, visible));
     }
 
     @Override
     public void visitAttribute(Attribute attribute) {
-        visitOperation(-1, () -> super.visitAttribute(attribute));
+        visitOperation(-1, ops.attribute(attribute));
     }
 
     @Override
     public void visitCode() {
-        ops.add(super::visitCode);
+        ops.add(ops.code());
     }
 
     @Override
     public void visitEnd() {
-        ops.add(super::visitEnd);
+        ops.add(ops.end());
     }
 
     @Override
     public void visitFrame(int type, int numLocal, Object[] local, int numStack, Object[] stack) {
-        ops.add(() -> super.visitFrame(type, numLocal, local, numStack, stack));
+        ops.add(ops.frame(type, numLocal, local, numStack, stack));
     }
 
     @Override
     public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
-        visitOperation(opcode, () -> super.visitFieldInsn(opcode, owner, name, descriptor));
+        visitOperation(opcode, ops.fieldInsn(opcode, owner, name, descriptor));
     }
 
     @Override
     public void visitIincInsn(int varIndex, int increment) {
-        visitOperation(IINC, () -> super.visitIincInsn(varIndex, increment));
+        visitOperation(IINC, ops.iincInsn(varIndex, increment));
     }
 
     @Override
     public void visitInsn(int opcode) {
-        visitOperation(opcode, () -> super.visitInsn(opcode));
+        visitOperation(opcode, ops.insn(opcode));
     }
 
     @Override
     public void visitIntInsn(int opcode, int operand) {
-        visitOperation(opcode, () -> super.visitIntInsn(opcode, operand));
+        visitOperation(opcode, ops.intInsn(opcode, operand));
     }
 
     @Override
@@ -86,37 +89,37 @@ public class QueuedVisitor extends MethodVisitor {
 
     @Override
     public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
-        visitOperation(INVOKEDYNAMIC, () -> super.visitInvokeDynamicInsn(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments));
+        visitOperation(INVOKEDYNAMIC, ops.invokeDynamicInsn(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments));
     }
 
     @Override
     public void visitJumpInsn(int opcode, Label label) {
-        visitOperation(opcode, () -> super.visitJumpInsn(opcode, label));
+        visitOperation(opcode, ops.jumpInsn(opcode, label));
     }
 
     @Override
     public void visitLabel(Label label) {
-        ops.add(() -> super.visitLabel(label));
+        ops.add(ops.label(label));
     }
 
     @Override
     public void visitLdcInsn(Object value) {
-        visitOperation(LDC, () -> super.visitLdcInsn(value));
+        visitOperation(LDC, ops.ldcInsn(value));
     }
 
     @Override
     public void visitLineNumber(int line, Label start) {
-        ops.add(() -> super.visitLineNumber(line, start));
+        ops.add(ops.lineNumber(line, start));
     }
 
     @Override
     public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
-        visitOperation(LOOKUPSWITCH, () -> super.visitLookupSwitchInsn(dflt, keys, labels));
+        visitOperation(LOOKUPSWITCH, ops.lookupSwitchInsn(dflt, keys, labels));
     }
 
     @Override
     public void visitLocalVariable(String name, String descriptor, String signature, Label start, Label end, int index) {
-        visitOperation(-1, () -> super.visitLocalVariable(name, descriptor, signature, start, end, index));
+        visitOperation(-1, ops.localVariable(name, descriptor, signature, start, end, index));
     }
 
     @Override
@@ -126,7 +129,7 @@ public class QueuedVisitor extends MethodVisitor {
 
     @Override
     public void visitMaxs(int maxStack, int maxLocals) {
-        ops.add(() -> super.visitMaxs(maxStack, maxLocals));
+        ops.add(ops.maxs(maxStack, maxLocals));
     }
 
     @Override
@@ -142,17 +145,17 @@ public class QueuedVisitor extends MethodVisitor {
             visitMethodInsn(opcode, owner, name, descriptor);
             return;
         }
-        visitOperation(opcode & ~SOURCE_MASK, () -> super.visitMethodInsn(opcode, owner, name, descriptor, isInterface));
+        visitOperation(opcode & ~SOURCE_MASK, ops.methodInsn(opcode, owner, name, descriptor, isInterface));
     }
 
     @Override
     public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
-        visitOperation(MULTIANEWARRAY, () -> super.visitMultiANewArrayInsn(descriptor, numDimensions));
+        visitOperation(MULTIANEWARRAY, ops.multiANewArrayInsn(descriptor, numDimensions));
     }
 
     @Override
     public void visitParameter(String name, int access) {
-        visitOperation(-1, () -> super.visitParameter(name, access));
+        visitOperation(-1, ops.parameter(name, access));
     }
 
     @Override
@@ -162,7 +165,7 @@ public class QueuedVisitor extends MethodVisitor {
 
     @Override
     public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
-        visitOperation(TABLESWITCH, () -> super.visitTableSwitchInsn(min, max, dflt, labels));
+        visitOperation(TABLESWITCH, ops.tableSwitchInsn(min, max, dflt, labels));
     }
 
     @Override
@@ -172,7 +175,7 @@ public class QueuedVisitor extends MethodVisitor {
 
     @Override
     public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
-        visitOperation(-1, () -> super.visitTryCatchBlock(start, end, handler, type));
+        visitOperation(-1, ops.tryCatchBlock(start, end, handler, type));
     }
 
     @Override
@@ -182,12 +185,12 @@ public class QueuedVisitor extends MethodVisitor {
 
     @Override
     public void visitTypeInsn(int opcode, String type) {
-        visitOperation(opcode, () -> super.visitTypeInsn(opcode, type));
+        visitOperation(opcode, ops.typeInsn(opcode, type));
     }
 
     @Override
     public void visitVarInsn(int opcode, int varIndex) {
-        visitOperation(opcode, () -> super.visitVarInsn(opcode, varIndex));
+        visitOperation(opcode, ops.varInsn(opcode, varIndex));
     }
 
     private final class Repeater extends AnnotationVisitor {
@@ -0,0 +1,446 @@
+package bridge.asm;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+// Stores the class hierarchy in flat arrays, where each class name is interned to an int id
+// Writes are serialized, while reads are lock-free: arrays are split into chunks that never move, and each id is published through a release store
+final class TypeGraph {
+    static final int NONE = -1;
+    static final byte UNDEFINED = 0, DEFINED = 1, UNRESOLVED = 2;
+    private static final int SHIFT = 10, CHUNK = 1 << SHIFT, MASK = CHUNK - 1;
+    private static final int LINK_SHIFT = 16, LINK_CHUNK = 1 << LINK_SHIFT, LINK_MASK = LINK_CHUNK - 1;
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(String[].class);
+    private static final VarHandle STATES = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final VarHandle VIEWS = MethodHandles.arrayElementVarHandle(Node[].class);
+    private static final VarHandle CHUNKS = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final int[] EMPTY = new int[0];
+    private static final int COMMON = 4096;
+    final TypeMap types;
+    final int object;
+    private volatile Table table = new Table(CHUNK);
+    private volatile Store store = new Store();
+    private volatile Common[] common = new Common[COMMON];
+    private int size, links, defined;
+
+    TypeGraph(TypeMap types) {
+        this.types = types;
+        this.object = intern("java/lang/Object");
+    }
+
+    private static final class Table {
+        final String[] keys;
+        final int[] ids;
+
+        Table(int capacity) {
+            keys = new String[capacity];
+            ids = new int[capacity];
+        }
+    }
+
+    private static final class Store {
+        final String[][] names;
+        final byte[][] states;
+        final int[][] access, supers, links;
+        final char[][] counts;
+        final Object[][] data;
+        final Node[][] views;
+        final int[][] pool;
+        final int[][] depths, closures[];
+
+        Store() {
+            names = new String[0][];
+            states = new byte[0][];
+            access = supers = links = pool = new int[0][];
+            counts = new char[0][];
+            data = new Object[0][];
+            views = new Node[0][];
+            depths = new int[0][];
+            closures = new int[0][][];
+        }
+
+        Store(Store store, int chunks, int pools, boolean index) {
+            names = Arrays.copyOf(store.names, chunks);
+            states = Arrays.copyOf(store.states, chunks);
+            access = Arrays.copyOf(store.access, chunks);
+            supers = Arrays.copyOf(store.supers, chunks);
+            links = Arrays.copyOf(store.links, chunks);
+            counts = Arrays.copyOf(store.counts, chunks);
+            data = Arrays.copyOf(store.data, chunks);
+            views = Arrays.copyOf(store.views, chunks);
+            for (int i = store.names.length; i < chunks; ++i) {
+                names[i] = new String[CHUNK];
+                states[i] = new byte[CHUNK];
+                access[i] = new int[CHUNK];
+                supers[i] = new int[CHUNK];
+                links[i] = new int[CHUNK];
+                counts[i] = new char[CHUNK];
+                data[i] = new Object[CHUNK];
+                views[i] = new Node[CHUNK];
+            }
+            pool = Arrays.copyOf(store.pool, pools);
+            for (int i = store.pool.length; i < pools; ++i) pool[i] = new int[LINK_CHUNK];
+            depths = (index)? Arrays.copyOf(store.depths, chunks) : new int[chunks][];
+            closures = (index)? Arrays.copyOf(store.closures, chunks) : new int[chunks][][];
+        }
+    }
+
+    private static int hash(String name) {
+        final int h = name.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    int find(String name) {
+        final Table table = this.table;
+        final String[] keys = table.keys;
+        final int mask = keys.length - 1;
+        for (int i = hash(name) & mask;; i = (i + 1) & mask) {
+            final String key = (String) KEYS.getAcquire(keys, i);
+            if (key == null) return NONE;
+            if (key.equals(name)) return table.ids[i];
+        }
+    }
+
+    int intern(String name) {
+        int id;
+        if ((id = find(name)) != NONE) return id;
+        synchronized (this) {
+            if ((id = find(name)) != NONE) return id;
+            Store store = this.store;
+            if ((id = size) == store.names.length << SHIFT) {
+                this.store = store = new Store(store, store.names.length + 1, store.pool.length, true);
+            }
+            store.names[id >>> SHIFT][id & MASK] = name;
+            store.supers[id >>> SHIFT][id & MASK] = NONE;
+            ++size;
+
+            Table table = this.table;
+            if (size * 2 > table.keys.length) {
+                final Table grown = new Table(table.keys.length * 2);
+                for (int i = 0; i != table.keys.length; ++i) {
+                    final String key;
+                    if ((key = table.keys[i]) != null) insert(grown, key, table.ids[i]);
+                }
+                this.table = table = grown;
+            }
+            insert(table, name, id);
+            return id;
+        }
+    }
+
+    private static void insert(Table table, String name, int id) {
+        final String[] keys = table.keys;
+        final int mask = keys.length - 1;
+        int i = hash(name) & mask;
+        while (keys[i] != null) i = (i + 1) & mask;
+        table.ids[i] = id;
+        KEYS.setRelease(keys, i, name);
+    }
+
+    // The first definition of a type wins, so a published type is never rewritten, although a definition may still replace an unresolved placeholder
+    synchronized int define(String name, int access, String extended, String[] implemented, Object data, byte state) {
+        final int id = intern(name);
+        final byte previous = state(id);
+        if (previous == DEFINED || (previous == UNRESOLVED && state != DEFINED)) return id;
+
+        final int supertype = (extended == null)? (id == object)? NONE : object : intern(extended);
+        final int count = (implemented == null)? 0 : implemented.length;
+        int link = 0;
+        if (count != 0) {
+            if ((links & LINK_MASK) + count > LINK_CHUNK) links = (links & ~LINK_MASK) + LINK_CHUNK;
+            link = links;
+            final int[] ids = new int[count];
+            for (int i = 0; i != count; ++i) ids[i] = intern(implemented[i]);
+            Store store = this.store;
+            if ((links += count) > store.pool.length << LINK_SHIFT) {
+                this.store = new Store(store, store.names.length, (links + LINK_MASK) >>> LINK_SHIFT, true);
+            }
+            System.arraycopy(ids, 0, this.store.pool[link >>> LINK_SHIFT], link & LINK_MASK, count);
+        }
+
+        Store store = this.store;
+        final int chunk = id >>> SHIFT, index = id & MASK;
+        final boolean moved = previous == UNRESOLVED && (store.supers[chunk][index] != supertype || !same(id, link, count));
+        store.access[chunk][index] = access;
+        store.supers[chunk][index] = supertype;
+        store.links[chunk][index] = link;
+        store.counts[chunk][index] = (char) count;
+        store.data[chunk][index] = data;
+        STATES.setRelease(store.states[chunk], index, state);
+        if (previous == UNDEFINED) ++defined;
+        if (moved) {
+            // A placeholder took on its real hierarchy, so every index entry below it may have changed with it
+            this.store = new Store(store, store.names.length, store.pool.length, false);
+            this.common = new Common[COMMON];
+        }
+        return id;
+    }
+
+    private boolean same(int id, int link, int count) {
+        if (interfaces(id) != count) return false;
+        final Store store = this.store;
+        for (int i = 0; i != count; ++i) {
+            final int value = link + i;
+            if (interfaceAt(id, i) != store.pool[value >>> LINK_SHIFT][value & LINK_MASK]) return false;
+        }
+        return true;
+    }
+
+    synchronized int size() {
+        return defined;
+    }
+
+    synchronized int interned() {
+        return size;
+    }
+
+    byte state(int id) {
+        final Store store = this.store;
+        if (id >= store.names.length << SHIFT) return UNDEFINED;
+        return (byte) STATES.getAcquire(store.states[id >>> SHIFT], id & MASK);
+    }
+
+    int resolve(int id) {
+        if (state(id) == UNDEFINED) types.resolve(this, id);
+        return id;
+    }
+
+    String name(int id) {
+        return store.names[id >>> SHIFT][id & MASK];
+    }
+
+    int access(int id) {
+        return store.access[id >>> SHIFT][id & MASK];
+    }
+
+    int supertype(int id) {
+        return store.supers[id >>> SHIFT][id & MASK];
+    }
+
+    int interfaces(int id) {
+        return store.counts[id >>> SHIFT][id & MASK];
+    }
+
+    int interfaceAt(int id, int index) {
+        final Store store = this.store;
+        final int link = store.links[id >>> SHIFT][id & MASK] + index;
+        return store.pool[link >>> LINK_SHIFT][link & LINK_MASK];
+    }
+
+    Object data(int id) {
+        return store.data[id >>> SHIFT][id & MASK];
+    }
+
+    void data(int id, Object data) {
+        store.data[id >>> SHIFT][id & MASK] = data;
+    }
+
+    Node view(int id) {
+        resolve(id);
+        final Node[] views = store.views[id >>> SHIFT];
+        Node view;
+        if ((view = (Node) VIEWS.getAcquire(views, id & MASK)) == null) {
+            final Node value = new Node(this, id);
+            if ((view = (Node) VIEWS.compareAndExchangeRelease(views, id & MASK, null, value)) == null) view = value;
+        }
+        return view;
+    }
+
+    boolean interfaced(int id) {
+        return (access(id) & Opcodes.ACC_INTERFACE) != 0;
+    }
+
+    // The number of superclasses above a type, which is counted once and indexed
+    int depth(int id) {
+        final Store store = this.store;
+        final int[] depths = chunk(store.depths, id, CHUNK);
+        int depth;
+        if ((depth = depths[id & MASK]) == 0) {
+            final int extended;
+            depth = ((extended = supertype(resolve(id))) == NONE)? 0 : depth(extended) + 1;
+            depths[id & MASK] = depth + 1;
+            return depth;
+        }
+        return depth - 1;
+    }
+
+    // The sorted ids of every interface above a type, which is shared with the supertype whenever it adds nothing new
+    int[] closure(int id) {
+        final Store store = this.store;
+        final int[][] closures = chunk(store.closures, id, CHUNK);
+        int[] closure;
+        if ((closure = closures[id & MASK]) == null) {
+            final int extended = supertype(resolve(id));
+            closure = (extended == NONE)? EMPTY : closure(extended);
+            for (int i = 0, length = interfaces(id); i != length; ++i) {
+                final int value = interfaceAt(id, i);
+                closure = union(union(closure, closure(value)), value);
+            }
+            if (interfaced(id)) closure = union(closure, id);
+            closures[id & MASK] = closure;
+        }
+        return closure;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T chunk(Object[] chunks, int id, int length) {
+        final int chunk = id >>> SHIFT;
+        Object value;
+        if ((value = CHUNKS.getAcquire(chunks, chunk)) == null) {
+            final Object array = (chunks instanceof int[][])? new int[length] : new int[length][];
+            if ((value = CHUNKS.compareAndExchangeRelease(chunks, chunk, null, array)) == null) value = array;
+        }
+        return (T) value;
+    }
+
+    private static int[] union(int[] set, int id) {
+        int i;
+        if ((i = Arrays.binarySearch(set, id)) >= 0) return set;
+        final int[] value = new int[set.length + 1];
+        System.arraycopy(set, 0, value, 0, i = -i - 1);
+        value[i] = id;
+        System.arraycopy(set, i, value, i + 1, set.length - i);
+        return value;
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        if (b.length == 0 || a == b) return a;
+        if (a.length == 0) return b;
+        final int[] value = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i != a.length && j != b.length) {
+            final int x = a[i], y = b[j];
+            value[k++] = (x <= y)? a[i++] : b[j++];
+            if (x == y) ++j;
+        }
+        if (k == i && j == b.length) return a;
+        while (i != a.length) value[k++] = a[i++];
+        while (j != b.length) value[k++] = b[j++];
+        return (k == a.length)? a : (k == b.length)? b : Arrays.copyOf(value, k);
+    }
+
+    boolean extended(int id, int type) {
+        int distance = depth(id);
+        if (state(type) == UNDEFINED || (distance -= depth(type)) < 0) return false;
+        for (; distance != 0; --distance) id = supertype(id);
+        return id == type;
+    }
+
+    boolean implemented(int id, int type) {
+        if (id == type) return true;
+        final int[] closure = closure(id);
+        if (state(type) == UNDEFINED) return false;
+        return Arrays.binarySearch(closure, type) >= 0 || (!interfaced(type) && extended(id, type));
+    }
+
+    // The lowest superclass that two classes share
+    int ancestor(int a, int b) {
+        int da = depth(a), db = depth(b);
+        for (; da > db; --da) a = supertype(a);
+        for (; db > da; --db) b = supertype(b);
+        while (a != b) {
+            a = supertype(a);
+            b = supertype(b);
+        }
+        return a;
+    }
+
+    // The type that frames merge two types into (or NONE for unrelated interfaces), where recent answers are kept in a small direct-mapped table
+    int common(int a, int b) {
+        final long key = ((long) a << 32) | (b & 0xFFFFFFFFL);
+        final Common[] table = this.common;
+        final int h = Long.hashCode(key * 0x9E3779B97F4A7C15L), slot = (h ^ (h >>> 16)) & (COMMON - 1);
+        final Common entry;
+        if ((entry = table[slot]) != null && entry.key == key) return entry.value;
+
+        final int value;
+        if (a == b || implemented(b, a)) {
+            value = a;
+        } else if (implemented(a, b)) {
+            value = b;
+        } else if (!interfaced(a) && !interfaced(b)) {
+            value = ancestor(a, b);
+        } else {
+            value = NONE;
+        }
+        table[slot] = new Common(key, value);
+        return value;
+    }
+
+    private static final class Common {
+        final long key;
+        final int value;
+
+        Common(long key, int value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    // A KnownType that reads its hierarchy from the graph
+    static final class Node extends KnownType {
+        final TypeGraph graph;
+        final int id;
+
+        private Node(TypeGraph graph, int id) {
+            super(Type.getObjectType(graph.name(id)));
+            this.graph = graph;
+            this.id = id;
+        }
+
+        @Override
+        int access() {
+            return graph.access(id);
+        }
+
+        @Override
+        public Object data() {
+            return graph.data(id);
+        }
+
+        void data(Object data) {
+            graph.data(id, data);
+        }
+
+        @Override
+        public KnownType supertype() {
+            final int extended;
+            return ((extended = graph.supertype(id)) == NONE)? null : graph.view(extended);
+        }
+
+        @Override
+        int interfaceCount() {
+            return graph.interfaces(id);
+        }
+
+        @Override
+        KnownType interfaceAt(int index) {
+            return graph.view(graph.interfaceAt(id, index));
+        }
+
+        @Override
+        public boolean extended(KnownType type) {
+            if (type instanceof Node && ((Node) type).graph == graph) return graph.extended(id, ((Node) type).id);
+            return super.extended(type);
+        }
+
+        @Override
+        public boolean implemented(KnownType type) {
+            if (type instanceof Node && ((Node) type).graph == graph) return graph.implemented(id, ((Node) type).id);
+            return super.implemented(type);
+        }
+
+        @Override
+        KnownType common(KnownType type) {
+            if (type instanceof Node && ((Node) type).graph == graph) {
+                final int common;
+                return ((common = graph.common(id, ((Node) type).id)) == NONE)? null : graph.view(common);
+            }
+            return super.common(type);
+        }
+    }
+}
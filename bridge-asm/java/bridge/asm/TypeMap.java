@@ -4,16 +4,30 @@ import org.objectweb.asm.Type;
 
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 public final class TypeMap implements Cloneable {
     public static final ClassLoader PLATFORM;
+    private static final Map<Type, KnownType> PRIMITIVES = new HashMap<>();
     public static final byte STORE_ARRAYS = 0b1;
     final ClassLoader loader;
-    final HashMap<Type, KnownType> map = new HashMap<>();
-    private final Collection<KnownType> values = Collections.unmodifiableCollection(map.values());
+    final Platform platform;
+    private final TypeMap root;
+    private volatile TypeGraph graph;
+    private final ConcurrentHashMap<Type, KnownType> arrays;
+    private final Collection<KnownType> values;
+    final Consumer<KnownType> listener;
+    private final LongAdder misses, unresolved;
     private final boolean store_arrays;
 
     static {
@@ -24,6 +38,10 @@ public final class TypeMap implements Cloneable {
             loader = ClassLoader.getSystemClassLoader();
         }
         PLATFORM = loader;
+        for (Class<?> primitive : new Class<?>[] {void.class, boolean.class, char.class, byte.class, short.class, int.class, float.class, long.class, double.class}) {
+            final KnownType type = new KnownType.Primitive(primitive);
+            PRIMITIVES.put(type.type, type);
+        }
     }
 
     public TypeMap() {
@@ -39,14 +57,68 @@ public final class TypeMap implements Cloneable {
     }
 
     public TypeMap(ClassLoader loader, int flags) {
+        this(loader, Platform.current(), flags);
+    }
+
+    public TypeMap(Platform platform, int flags) {
+        this(PLATFORM, platform, flags);
+    }
+
+    public TypeMap(ClassLoader loader, Platform platform, int flags) {
         this.loader = loader;
+        this.platform = platform;
+        this.root = this;
+        this.graph = new TypeGraph(this);
+        this.arrays = ((flags & STORE_ARRAYS) != 0)? new ConcurrentHashMap<>() : null;
+        this.values = new Values();
+        this.listener = null;
+        this.misses = new LongAdder();
+        this.unresolved = new LongAdder();
         store_arrays = (flags & STORE_ARRAYS) != 0;
     }
 
+    private TypeMap(TypeMap types, Consumer<KnownType> listener) {
+        this.loader = types.loader;
+        this.platform = types.platform;
+        this.root = types.root;
+        this.arrays = types.arrays;
+        this.values = types.values;
+        this.listener = listener;
+        this.misses = types.misses;
+        this.unresolved = types.unresolved;
+        store_arrays = types.store_arrays;
+    }
+
+    public TypeMap view(Consumer<KnownType> listener) {
+        return new TypeMap(this, Objects.requireNonNull(listener));
+    }
+
+    TypeGraph graph() {
+        return root.graph;
+    }
+
     public KnownType add(KnownType type) {
-        if (type.isArray() && !store_arrays) return type;
-        KnownType value = map.putIfAbsent(type.type, type);
-        return (value != null)? value : type;
+        if (type.isArray()) {
+            if (!store_arrays) return type;
+            final KnownType value = arrays.putIfAbsent(type.type, type);
+            return (value != null)? value : type;
+        } else if (type.isPrimitive()) {
+            return PRIMITIVES.get(type.type);
+        }
+        final TypeGraph graph = graph();
+        if (type instanceof TypeGraph.Node && ((TypeGraph.Node) type).graph == graph) return type;
+
+        final KnownType extended = type.supertype();
+        final String[] implemented = new String[type.interfaceCount()];
+        for (int i = 0; i != implemented.length; ++i) implemented[i] = type.interfaceAt(i).type.getInternalName();
+        return graph.view(graph.define(
+                type.type.getInternalName(),
+                type.access(),
+                (extended == null)? null : extended.type.getInternalName(),
+                implemented,
+                type.data(),
+                TypeGraph.DEFINED
+        ));
     }
 
     public KnownType[] add(KnownType[] types) {
@@ -62,19 +134,65 @@ public final class TypeMap implements Cloneable {
     }
 
     public KnownType get(Class<?> loaded) {
-        Type type = Type.getType(loaded);
-        if (loaded.isArray()) {
-            if (store_arrays) {
-                KnownType value = map.get(type);
-                if (value != null) return value;
-                return new ArrayType(map, this, type, loaded);
-            } else {
-                return new ArrayType(new HashMap<>(), this, type, loaded);
+        final KnownType type = find(loaded);
+        if (listener != null) listener.accept(type);
+        return type;
+    }
+
+    private KnownType find(Class<?> loaded) {
+        if (loaded.isPrimitive()) {
+            return PRIMITIVES.get(Type.getType(loaded));
+        } else if (loaded.isArray()) {
+            return array(Type.getType(loaded));
+        }
+        final TypeGraph graph = graph();
+        final int id = graph.intern(Type.getInternalName(loaded));
+        if (graph.state(id) == TypeGraph.UNDEFINED) define(graph, loaded);
+        return graph.view(id);
+    }
+
+    // Classes that have already been loaded define their supertypes too, in case the platform cannot see them
+    private static void define(TypeGraph graph, Class<?> loaded) {
+        final Class<?> extended = loaded.getSuperclass();
+        final Class<?>[] interfaces = loaded.getInterfaces();
+        final String[] implemented = new String[interfaces.length];
+        for (int i = 0; i != interfaces.length; ++i) implemented[i] = Type.getInternalName(interfaces[i]);
+        graph.define(
+                Type.getInternalName(loaded),
+                loaded.getModifiers(),
+                (extended == null)? null : Type.getInternalName(extended),
+                implemented,
+                null,
+                TypeGraph.DEFINED
+        );
+        if (extended != null && graph.state(graph.intern(Type.getInternalName(extended))) == TypeGraph.UNDEFINED) define(graph, extended);
+        for (Class<?> type : interfaces) {
+            if (graph.state(graph.intern(Type.getInternalName(type))) == TypeGraph.UNDEFINED) define(graph, type);
+        }
+    }
+
+    void resolve(TypeGraph graph, int id) {
+        final String name = graph.name(id);
+        misses.increment();
+        if (id == graph.object) {
+            define(graph, Object.class);
+            return;
+        }
+        try {
+            // Platform types are read from the target release instead of being loaded
+            if (platform != null) {
+                final ClassHeader header;
+                if ((header = platform.find(name)) != null) {
+                    graph.define(name, header.access, header.extended, header.implemented, null, TypeGraph.DEFINED);
+                    return;
+                }
+                if (loader == PLATFORM) throw new ClassNotFoundException(name.replace('/', '.'));
             }
+            define(graph, Types.load(loader, Type.getObjectType(name)));
+        } catch (ClassNotFoundException e) {
+            unresolved.increment();
+            graph.define(name, 0, null, null, null, TypeGraph.UNRESOLVED);
         }
-        KnownType value = map.get(type);
-        if (value != null) return value;
-        return new KnownType(this, type, loaded);
     }
 
     public KnownType[] get(Class<?>[] loaded) {
@@ -90,29 +208,36 @@ public final class TypeMap implements Cloneable {
     }
 
     public KnownType load(Type type) {
-        if (type.getSort() == Type.ARRAY) {
-            if (store_arrays) {
-                KnownType value = map.get(type);
-                if (value != null) return value;
-                return new ArrayType(map, this, type, null);
-            } else {
-                return new ArrayType(new HashMap<>(), this, type, null);
-            }
-        }
-        KnownType value = map.get(type);
-        if (value != null) return value;
-        try {
-            return new KnownType(this, type, Types.load(loader, type));
-        } catch (ClassNotFoundException e) {
-            map.put(type, value = new KnownType(type));
-            if (type.getSort() == Type.OBJECT) {
-                value.extended = get(Object.class);
-            }
-            value.implemented = KnownType.EMPTY;
-            return value;
+        final KnownType value = find(type);
+        if (listener != null) listener.accept(value);
+        return value;
+    }
+
+    private KnownType find(Type type) {
+        switch (type.getSort()) {
+            case Type.ARRAY:
+                return array(type);
+            case Type.OBJECT:
+                final TypeGraph graph = graph();
+                return graph.view(graph.intern(type.getInternalName()));
+            default:
+                final KnownType value;
+                if ((value = PRIMITIVES.get(type)) == null) throw new IllegalArgumentException(type.getDescriptor());
+                return value;
         }
     }
 
+    private KnownType array(Type type) {
+        KnownType value;
+        if (store_arrays && (value = arrays.get(type)) != null) return value;
+        final String desc = type.getDescriptor();
+        final KnownType element = (desc.charAt(1) == '[')? array(Type.getType(desc.substring(1))) : find(Type.getType(desc.substring(1)));
+        value = new ArrayType(root, type, (element.isArray())? ((ArrayType) element).root : element, element);
+        if (!store_arrays) return value;
+        final KnownType race = arrays.putIfAbsent(type, value);
+        return (race != null)? race : value;
+    }
+
     public KnownType[] load(Type[] types) {
         final int length;
         if (types == null || (length = types.length) == 0) {
@@ -158,27 +283,33 @@ public final class TypeMap implements Cloneable {
     }
 
     public boolean contains(KnownType type) {
-        if (type != null) return map.containsKey(type.type);
-        return map.containsKey(null);
+        return type != null && contains(type.type);
     }
 
     public boolean contains(Class<?> loaded) {
-        if (loaded != null) return map.containsKey(Type.getType(loaded));
-        return map.containsKey(null);
+        return loaded != null && contains(Type.getType(loaded));
     }
 
     public boolean contains(Type type) {
-        return map.containsKey(type);
+        if (type == null) return false;
+        switch (type.getSort()) {
+            case Type.ARRAY:
+                return store_arrays && arrays.containsKey(type);
+            case Type.OBJECT:
+                final TypeGraph graph = graph();
+                final int id;
+                return (id = graph.find(type.getInternalName())) != TypeGraph.NONE && graph.state(id) != TypeGraph.UNDEFINED;
+            default:
+                return PRIMITIVES.containsKey(type);
+        }
     }
 
     public boolean contains(String type) {
-        if (type != null) return map.containsKey(Type.getType(type));
-        return map.containsKey(null);
+        return type != null && contains(Type.getType(type));
     }
 
     public boolean containsClass(String name) {
-        if (name != null) return map.containsKey(Type.getObjectType(name));
-        return map.containsKey(null);
+        return name != null && contains(Type.getObjectType(name));
     }
 
     public Collection<KnownType> values() {
@@ -186,11 +317,20 @@ public final class TypeMap implements Cloneable {
     }
 
     public int size() {
-        return map.size();
+        return graph().size() + ((store_arrays)? arrays.size() : 0);
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long unresolved() {
+        return unresolved.sum();
     }
 
     public void clear() {
-        map.clear();
+        root.graph = new TypeGraph(root);
+        if (store_arrays) arrays.clear();
     }
 
     @SuppressWarnings("MethodDoesntCallSuperMethod")
@@ -198,18 +338,60 @@ public final class TypeMap implements Cloneable {
      // int flags = 0;
      // if (store_arrays) flags += STORE_ARRAYS;
 
-        TypeMap clone = new TypeMap(loader, (store_arrays)? STORE_ARRAYS : 0);
-        clone.map.putAll(map);
+        TypeMap clone = new TypeMap(loader, platform, (store_arrays)? STORE_ARRAYS : 0);
+        final TypeGraph graph = graph(), copy = clone.graph;
+        for (int id = 0, size = graph.interned(); id != size; ++id) {
+            final byte state;
+            if ((state = graph.state(id)) == TypeGraph.UNDEFINED) continue;
+            final int extended = graph.supertype(id);
+            final String[] implemented = new String[graph.interfaces(id)];
+            for (int i = 0; i != implemented.length; ++i) implemented[i] = graph.name(graph.interfaceAt(id, i));
+            copy.define(graph.name(id), graph.access(id), (extended == TypeGraph.NONE)? null : graph.name(extended), implemented, graph.data(id), state);
+        }
+        if (store_arrays) clone.arrays.putAll(arrays);
         return clone;
     }
 
-    @Override
-    public int hashCode() {
-        return map.hashCode();
+    // The types that have been resolved so far, where each one is only viewed when it is reached
+    private final class Values extends AbstractCollection<KnownType> {
+        @Override
+        public Iterator<KnownType> iterator() {
+            final TypeGraph graph = graph();
+            final int size = graph.interned();
+            final Iterator<KnownType> arrays = (store_arrays)? TypeMap.this.arrays.values().iterator() : null;
+            return new Iterator<>() {
+                private int id = next(0);
+
+                private int next(int id) {
+                    while (id != size && graph.state(id) == TypeGraph.UNDEFINED) ++id;
+                    return id;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return id != size || (arrays != null && arrays.hasNext());
+                }
+
+                @Override
+                public KnownType next() {
+                    if (id == size) return arrays.next();
+                    final KnownType value = graph.view(id);
+                    id = next(id + 1);
+                    return value;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return TypeMap.this.size();
+        }
     }
 
     @Override
     public String toString() {
-        return map.keySet().toString();
+        final List<Type> types = new ArrayList<>();
+        for (KnownType type : values) types.add(type.type);
+        return types.toString();
     }
 }
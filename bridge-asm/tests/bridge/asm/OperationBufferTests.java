@@ -0,0 +1,258 @@
+package bridge.asm;
+
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.objectweb.asm.Opcodes.*;
+
+public class OperationBufferTests {
+
+    public void testReplay() throws Throwable {
+        final Label start = new Label(), end = new Label(), handler = new Label(), dflt = new Label();
+        final Handle bootstrap = new Handle(H_INVOKESTATIC, "test/Bootstrap", "bootstrap", "()Ljava/lang/invoke/CallSite;", false);
+        final Attribute attribute = new Attribute("Test") {};
+        final Consumer<MethodVisitor> script = mv -> {
+            mv.visitParameter("value", ACC_FINAL);
+            mv.visitAnnotableParameterCount(1, true);
+            mv.visitAttribute(attribute);
+            mv.visitCode();
+            // Enough operations to outgrow every array in the buffer
+            for (int i = 0; i != 32; ++i) {
+                mv.visitTryCatchBlock(start, end, handler, "java/lang/Exception");
+                mv.visitLabel(start);
+                mv.visitLineNumber(i + 1, start);
+                mv.visitFrame(F_FULL, 1, new Object[] {"java/lang/String"}, 1, new Object[] {INTEGER});
+                mv.visitInsn(NOP);
+                mv.visitIntInsn(SIPUSH, -i);
+                mv.visitVarInsn(ALOAD, i);
+                mv.visitTypeInsn(CHECKCAST, "java/lang/String");
+                mv.visitFieldInsn(GETSTATIC, "test/Owner", "field" + i, "I");
+                mv.visitMethodInsn(INVOKEINTERFACE, "test/Owner", "method", "()V", true);
+                mv.visitMethodInsn(INVOKESTATIC, "test/Owner", "method", "()V", false);
+                mv.visitInvokeDynamicInsn("dynamic", "()V", bootstrap, "argument", i);
+                mv.visitJumpInsn(IFEQ, end);
+                mv.visitLdcInsn(Type.getObjectType("test/Owner"));
+                mv.visitIincInsn(i, Integer.MIN_VALUE + i);
+                mv.visitTableSwitchInsn(i, i + 1, dflt, start, end);
+                mv.visitLookupSwitchInsn(dflt, new int[] {i}, new Label[] {handler});
+                mv.visitMultiANewArrayInsn("[[I", 2);
+                mv.visitLabel(end);
+            }
+            mv.visitLocalVariable("value", "Ljava/lang/String;", null, start, end, 0);
+            mv.visitMaxs(Short.MAX_VALUE, 0xFFFF);
+            mv.visitEnd();
+        };
+
+        final Recorder expected = new Recorder(), actual = new Recorder();
+        script.accept(expected);
+        final QueuedVisitor queue = new QueuedVisitor(ASM9) {};
+        script.accept(queue);
+        queue.ops.accept(actual);
+        expect(actual, expected.visits.toArray(new String[0]));
+    }
+
+    public void testInsertRemove() throws Throwable {
+        final OperationBuffer ops = new OperationBuffer();
+        final int[] op = new int[40];
+        for (int i = 0; i != op.length; ++i) op[i] = ops.intInsn(BIPUSH, i);
+        for (int i = 1; i < op.length; i += 2) ops.add(op[i]);
+        for (int i = 0; i < op.length; i += 2) ops.add(i, op[i]);
+        if (ops.size() != op.length) throw new AssertionError("Expected " + op.length + " operations, found " + ops.size());
+        for (int i = 0; i != op.length; ++i) {
+            if (ops.get(i) != op[i]) throw new AssertionError("Operation " + i + " is out of order");
+        }
+
+        if (ops.remove(0) != op[0] || ops.remove(10) != op[11] || ops.removeLast() != op[39]) throw new AssertionError("Removed the wrong operations");
+        ops.add(ops.size(), op[39]);
+        ops.add(0, op[0]);
+        final Recorder recorder = new Recorder();
+        ops.accept(recorder, 9, 12);
+        expect(recorder, "visitIntInsn 16 9", "visitIntInsn 16 10", "visitIntInsn 16 12");
+
+        final Recorder all = new Recorder();
+        ops.accept(all);
+        if (all.visits.size() != op.length - 1 || !all.visits.getLast().equals("visitIntInsn 16 39")) throw new AssertionError("Unexpected replay: " + all.visits);
+
+        for (int index : new int[] {-1, ops.size()}) {
+            try {
+                ops.get(index);
+                throw new AssertionError("Read operation " + index + " of " + ops.size());
+            } catch (IndexOutOfBoundsException e) {
+                // expected
+            }
+        }
+        try {
+            ops.add(ops.size() + 1, op[0]);
+            throw new AssertionError("Inserted past the end");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    public void testTasks() throws Throwable {
+        final OperationBuffer ops = new OperationBuffer();
+        final List<String> ran = new ArrayList<>();
+        ops.add(ops.insn(NOP));
+        ops.add(ops.task(() -> ran.add("first")));
+        ops.add(ops.insn(ATHROW));
+        ops.add(ops.task(() -> ran.add("second")));
+
+        // Tasks still run when there is nothing to replay into
+        ops.accept(null);
+        if (!ran.equals(List.of("first", "second"))) throw new AssertionError("Unexpected tasks: " + ran);
+
+        final Recorder recorder = new Recorder();
+        ops.accept(recorder);
+        expect(recorder, "visitInsn 0", "visitInsn 191");
+        if (ran.size() != 4) throw new AssertionError("Tasks did not run on replay: " + ran);
+    }
+
+    private static void expect(Recorder recorder, String... visits) {
+        if (!recorder.visits.equals(Arrays.asList(visits))) throw new AssertionError("Replayed " + recorder.visits + ", expected " + Arrays.toString(visits));
+    }
+
+    // Writes down every visit along with its operands
+    private static final class Recorder extends MethodVisitor {
+        private final List<String> visits = new ArrayList<>();
+
+        private Recorder() {
+            super(ASM9);
+        }
+
+        private void record(String name, Object... args) {
+            final StringBuilder str = new StringBuilder(name);
+            for (Object arg : args) {
+                str.append(' ').append((arg instanceof Object[])? Arrays.deepToString((Object[]) arg) : (arg instanceof int[])? Arrays.toString((int[]) arg) : String.valueOf(arg));
+            }
+            visits.add(str.toString());
+        }
+
+        @Override
+        public void visitParameter(String name, int access) {
+            record("visitParameter", name, access);
+        }
+
+        @Override
+        public void visitAnnotableParameterCount(int parameterCount, boolean visible) {
+            record("visitAnnotableParameterCount", parameterCount, visible);
+        }
+
+        @Override
+        public void visitAttribute(Attribute attribute) {
+            record("visitAttribute", attribute.type);
+        }
+
+        @Override
+        public void visitCode() {
+            record("visitCode");
+        }
+
+        @Override
+        public void visitFrame(int type, int numLocal, Object[] local, int numStack, Object[] stack) {
+            record("visitFrame", type, numLocal, local, numStack, stack);
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            record("visitInsn", opcode);
+        }
+
+        @Override
+        public void visitIntInsn(int opcode, int operand) {
+            record("visitIntInsn", opcode, operand);
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int varIndex) {
+            record("visitVarInsn", opcode, varIndex);
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            record("visitTypeInsn", opcode, type);
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+            record("visitFieldInsn", opcode, owner, name, descriptor);
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            record("visitMethodInsn", opcode, owner, name, descriptor, isInterface);
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+            record("visitInvokeDynamicInsn", name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+            record("visitJumpInsn", opcode, label);
+        }
+
+        @Override
+        public void visitLabel(Label label) {
+            record("visitLabel", label);
+        }
+
+        @Override
+        public void visitLdcInsn(Object value) {
+            record("visitLdcInsn", value);
+        }
+
+        @Override
+        public void visitIincInsn(int varIndex, int increment) {
+            record("visitIincInsn", varIndex, increment);
+        }
+
+        @Override
+        public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+            record("visitTableSwitchInsn", min, max, dflt, labels);
+        }
+
+        @Override
+        public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+            record("visitLookupSwitchInsn", dflt, keys, labels);
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+            record("visitMultiANewArrayInsn", descriptor, numDimensions);
+        }
+
+        @Override
+        public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+            record("visitTryCatchBlock", start, end, handler, type);
+        }
+
+        @Override
+        public void visitLocalVariable(String name, String descriptor, String signature, Label start, Label end, int index) {
+            record("visitLocalVariable", name, descriptor, signature, start, end, index);
+        }
+
+        @Override
+        public void visitLineNumber(int line, Label start) {
+            record("visitLineNumber", line, start);
+        }
+
+        @Override
+        public void visitMaxs(int maxStack, int maxLocals) {
+            record("visitMaxs", maxStack, maxLocals);
+        }
+
+        @Override
+        public void visitEnd() {
+            record("visitEnd");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package bridge.asm;
+
+public class PlatformTests {
+    private static final String LIST = "java/util/ArrayList", SEQUENCED = "java/util/SequencedCollection";
+
+    public void testReleases() throws Throwable {
+        if (Platform.RUNTIME < 21) throw new AssertionError("Sequenced collections need Java 21 to test against, found " + Platform.RUNTIME);
+        final Platform java17 = Platform.of(17), java21 = Platform.of(21);
+        if (java17.release != 17 || java17.fallback()) throw new AssertionError("Java 17 was not read from its signatures");
+        if (!java17.source().getName().equals("ct.sym")) throw new AssertionError("Java 17 was read from " + java17.source());
+
+        if (java17.find(SEQUENCED) != null) throw new AssertionError("Java 17 has " + SEQUENCED);
+        if (java21.find(SEQUENCED) == null) throw new AssertionError("Java 21 is missing " + SEQUENCED);
+        if (implemented(java17, LIST, SEQUENCED)) throw new AssertionError("Java 17 " + LIST + " implements " + SEQUENCED);
+        if (!implemented(java21, LIST, SEQUENCED)) throw new AssertionError("Java 21 " + LIST + " does not implement " + SEQUENCED);
+        if (!implemented(java17, LIST, "java/util/List")) throw new AssertionError("Java 17 " + LIST + " does not implement java/util/List");
+    }
+
+    public void testUnknownRelease() throws Throwable {
+        final Platform future = Platform.of(Platform.RUNTIME + 1);
+        if (future != Platform.current()) throw new AssertionError("Java " + (Platform.RUNTIME + 1) + " did not fall back to Java " + Platform.RUNTIME);
+
+        // No JDK has signatures for this release, so the running one stands in for it
+        final Platform ancient = Platform.of(1);
+        if (!ancient.fallback()) throw new AssertionError("Java 1 was read from " + ancient.source());
+        if (ancient.find(LIST) == null) throw new AssertionError("Java 1 fallback is missing " + LIST);
+        if (!implemented(ancient, LIST, "java/util/List")) throw new AssertionError("Java 1 fallback " + LIST + " does not implement java/util/List");
+    }
+
+    private static boolean implemented(Platform platform, String type, String implemented) {
+        final TypeMap types = new TypeMap(platform, 0);
+        return types.loadClass(type).implemented(types.loadClass(implemented));
+    }
+}
@@ -0,0 +1,35 @@
+package bridge.asm;
+
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+
+public class TypeGraphTests {
+    private static final String PLACEHOLDER = "test/Placeholder", LIST = "java/util/ArrayList";
+
+    public void testPlaceholder() throws Throwable {
+        final TypeMap types = new TypeMap(Platform.current(), 0);
+        final TypeGraph graph = types.graph();
+        final KnownType placeholder = types.loadClass(PLACEHOLDER), list = types.loadClass(LIST);
+        final KnownType parent = types.loadClass("java/util/AbstractCollection"), random = types.loadClass("java/util/RandomAccess");
+        final int id = graph.find(PLACEHOLDER);
+        if (graph.state(id) != TypeGraph.UNRESOLVED) throw new AssertionError(PLACEHOLDER + " is not a placeholder");
+
+        // Every answer below is indexed or cached before the placeholder takes on its real hierarchy
+        expect(placeholder, list, parent, random, "java/lang/Object", false, false);
+        graph.define(PLACEHOLDER, ACC_PUBLIC, "java/util/AbstractList", new String[] {"java/util/RandomAccess"}, null, TypeGraph.DEFINED);
+        if (graph.state(id) != TypeGraph.DEFINED) throw new AssertionError(PLACEHOLDER + " was not defined");
+        expect(placeholder, list, parent, random, "java/util/AbstractList", true, true);
+
+        // A defined type is never rewritten, whether by another definition or another placeholder
+        graph.define(PLACEHOLDER, ACC_PUBLIC, "java/lang/Object", null, null, TypeGraph.DEFINED);
+        graph.define(PLACEHOLDER, 0, null, null, null, TypeGraph.UNRESOLVED);
+        if (graph.state(id) != TypeGraph.DEFINED) throw new AssertionError(PLACEHOLDER + " was redefined as a placeholder");
+        expect(placeholder, list, parent, random, "java/util/AbstractList", true, true);
+    }
+
+    private static void expect(KnownType type, KnownType other, KnownType parent, KnownType iface, String common, boolean extended, boolean implemented) {
+        final KnownType value = type.common(other);
+        if (value == null || !value.type.getInternalName().equals(common)) throw new AssertionError("Common superclass of " + type + " and " + other + " is " + value + ", expected " + common);
+        if (type.extended(parent) != extended) throw new AssertionError(type + (extended? " does not extend " : " extends ") + parent);
+        if (type.implemented(iface) != implemented) throw new AssertionError(type + (implemented? " does not implement " : " implements ") + iface);
+    }
+}
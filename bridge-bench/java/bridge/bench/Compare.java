@@ -0,0 +1,152 @@
+package bridge.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compares two JMH result files written with <code>-rf csv</code>
+ * <p>
+ * Usage: <code>java -cp benchmarks.jar bridge.bench.Compare &lt;baseline.csv&gt; &lt;current.csv&gt; [threshold %]</code>
+ * <p>
+ * A benchmark has regressed when its score is worse than the baseline by more than the threshold (5% by default)
+ * and the error margins of both runs do not overlap. The exit status is 1 if any benchmark has regressed.
+ */
+public final class Compare {
+    private Compare() {}
+
+    private static final class Score {
+        final String mode, unit;
+        final double score, error;
+
+        private Score(String mode, double score, double error, String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+
+        // Throughput is the only mode where a higher score is better
+        double change(Score baseline) {
+            final double change = (score - baseline.score) / baseline.score;
+            return (mode.equals("thrpt"))? -change : change;
+        }
+
+        boolean overlaps(Score baseline) {
+            return Math.abs(score - baseline.score) <= error + baseline.error;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: Compare <baseline.csv> <current.csv> [threshold %]");
+            System.exit(2);
+            return;
+        }
+        final Map<String, Score> baseline = read(args[0]), current = read(args[1]);
+        final double threshold = (args.length == 3)? Double.parseDouble(args[2]) / 100 : 0.05;
+
+        int width = 9;
+        for (String name : current.keySet()) width = Math.max(width, name.length());
+        final String format = "%-" + width + "s  %14s  %14s  %9s  %s%n";
+        System.out.printf(format, "Benchmark", "Baseline", "Current", "Change", "");
+
+        int regressions = 0;
+        for (Map.Entry<String, Score> e : current.entrySet()) {
+            final Score now = e.getValue(), then = baseline.get(e.getKey());
+            if (then == null || !then.mode.equals(now.mode) || !then.unit.equals(now.unit)) {
+                System.out.printf(format, e.getKey(), "-", score(now), "-", "new");
+                continue;
+            }
+            final double change = now.change(then);
+            final String status;
+            if (now.overlaps(then) || Math.abs(change) <= threshold) {
+                status = "";
+            } else if (change > 0) {
+                status = "REGRESSION";
+                ++regressions;
+            } else {
+                status = "improvement";
+            }
+            System.out.printf(format, e.getKey(), score(then), score(now), String.format(Locale.ROOT, "%+.1f%%", change * 100), status);
+        }
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) System.out.printf(format, name, score(baseline.get(name)), "-", "-", "removed");
+        }
+        System.out.println();
+        System.out.println(regressions + " regression" + ((regressions == 1)?"":"s") + " beyond " + String.format(Locale.ROOT, "%.1f%%", threshold * 100));
+        if (regressions != 0) System.exit(1);
+    }
+
+    private static String score(Score score) {
+        return String.format(Locale.ROOT, "%.3f %s", score.score, score.unit);
+    }
+
+    private static Map<String, Score> read(String file) throws IOException {
+        final List<String> lines = Files.readAllLines(Paths.get(file), UTF_8);
+        if (lines.isEmpty()) throw new IOException("Empty result file: " + file);
+        final List<String> header = fields(lines.get(0));
+        final int benchmark = column(header, "Benchmark", file), mode = column(header, "Mode", file), score = column(header, "Score", file);
+        final int error = column(header, "Score Error (99.9%)", file), unit = column(header, "Unit", file);
+        final Map<String, Score> scores = new LinkedHashMap<>();
+        for (int i = 1; i < lines.size(); ++i) {
+            if (lines.get(i).isEmpty()) continue;
+            final List<String> row = fields(lines.get(i));
+            final StringBuilder name = new StringBuilder(row.get(benchmark));
+            for (int k = 0; k != header.size(); ++k) {
+                if (header.get(k).startsWith("Param: ") && k < row.size() && !row.get(k).isEmpty()) {
+                    name.append(name.indexOf(":") < 0? ":" : ",").append(header.get(k).substring(7)).append('=').append(row.get(k));
+                }
+            }
+            final String margin = row.get(error);
+            scores.put(name.toString(), new Score(
+                    row.get(mode),
+                    Double.parseDouble(row.get(score)),
+                    (margin.isEmpty() || margin.equals("NaN"))? 0 : Double.parseDouble(margin),
+                    row.get(unit)
+            ));
+        }
+        return scores;
+    }
+
+    private static int column(List<String> header, String name, String file) throws IOException {
+        final int index;
+        if ((index = header.indexOf(name)) < 0) throw new IOException("Missing column \"" + name + "\" in " + file);
+        return index;
+    }
+
+    private static List<String> fields(String line) {
+        final List<String> fields = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0, length = line.length(); i != length; ++i) {
+            final char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < length && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    ++i;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
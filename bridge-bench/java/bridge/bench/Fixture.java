@@ -0,0 +1,78 @@
+package bridge.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Unprocessed class files packaged with the benchmarks
+ */
+public final class Fixture {
+    /**
+     * The jar or directory the benchmarks were loaded from
+     */
+    public static final File SOURCE = source(Fixture.class);
+
+    private Fixture() {}
+
+    /**
+     * Finds the jar or directory a class was loaded from
+     *
+     * @param type Loaded class
+     * @return Class path entry
+     */
+    public static File source(Class<?> type) {
+        try {
+            return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the class files in the given packages
+     *
+     * @param packages Internal package names (e.g. <code>bridge/objects/</code>)
+     * @return Class file contents by entry name
+     */
+    public static Map<String, byte[]> classes(String... packages) {
+        final Map<String, byte[]> classes = new LinkedHashMap<>();
+        try {
+            if (SOURCE.isDirectory()) {
+                final Path base = SOURCE.toPath();
+                try (Stream<Path> files = Files.walk(base)) {
+                    for (Path path : (Iterable<Path>) files.sorted()::iterator) {
+                        final String name = base.relativize(path).toString().replace(File.separatorChar, '/');
+                        if (matches(name, packages)) classes.put(name, Files.readAllBytes(path));
+                    }
+                }
+            } else try (ZipFile jar = new ZipFile(SOURCE)) {
+                for (Enumeration<? extends ZipEntry> it = jar.entries(); it.hasMoreElements();) {
+                    final ZipEntry entry = it.nextElement();
+                    if (matches(entry.getName(), packages)) classes.put(entry.getName(), jar.getInputStream(entry).readAllBytes());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (classes.isEmpty()) throw new IllegalStateException("No fixture classes found in " + SOURCE);
+        return classes;
+    }
+
+    private static boolean matches(String name, String[] packages) {
+        if (!name.endsWith(".class")) return false;
+        for (String prefix : packages) {
+            if (name.startsWith(prefix) && name.indexOf('/', prefix.length()) < 0) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,346 @@
+package bridge.bench;
+
+import bridge.Invocation;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.SimpleRemapper;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Generates synthetic class hierarchies and projects
+ */
+public final class Generator {
+    private static final int CHAIN = 64, LIBRARY_CHAIN = 32, PACKAGE = 1000;
+    private static final String[] TEMPLATES = {
+            "package template;\n" +
+            "public class Parent {}\n",
+
+            "package template;\n" +
+            "public interface Api {}\n",
+
+            "package template;\n" +
+            "import bridge.Bridge;\n" +
+            "import bridge.Invocation;\n" +
+            "public class Unit extends Parent implements Api {\n" +
+            "    @Bridge(name = \"boxed\", returns = Integer.class)\n" +
+            "    @Bridge(name = \"wide\", returns = long.class)\n" +
+            "    int value;\n" +
+            "    @Bridge(name = \"addBoxed\", params = Integer.class, returns = Integer.class)\n" +
+            "    @Bridge(name = \"addLong\", params = long.class, returns = long.class)\n" +
+            "    int add(int x) { return value + x; }\n" +
+            "    static int sum(int a, int b) { return a + b; }\n" +
+            "    int call(Unit other) {\n" +
+            "        int result = new Invocation(other).ofMethod(\"add\").with(1).invoke();\n" +
+            "        result += (int) new Invocation(Unit.class).ofMethod(\"sum\").with(result).with(2).invoke();\n" +
+            "        result += (int) new Invocation(other).ofField(\"value\").getAndSet(result);\n" +
+            "        result += (int) new Invocation(other).ofField(\"value\").setAndGet(result);\n" +
+            "        Integer boxed = new Invocation(other).ofMethod(Integer.class, \"addBoxed\").with(Integer.class, result).invoke();\n" +
+            "        Unit copy = new Invocation(Unit.class).ofConstructor().invoke();\n" +
+            "        return result + boxed + copy.value;\n" +
+            "    }\n" +
+            "}\n",
+
+            "package template;\n" +
+            "import bridge.Invocation;\n" +
+            "public class Forked extends Parent implements Api {\n" +
+            "    int value;\n" +
+            "    String level() {\n" +
+            "        if (Invocation.LANGUAGE_LEVEL >= 25) return \"25\";\n" +
+            "        if (Invocation.LANGUAGE_LEVEL >= 24) return \"24\";\n" +
+            "        if (Invocation.LANGUAGE_LEVEL >= 23) return \"23\";\n" +
+            "        if (Invocation.LANGUAGE_LEVEL >= 22) return \"22\";\n" +
+            "        return \"21\";\n" +
+            "    }\n" +
+            "    int call(Forked other) {\n" +
+            "        return (int) new Invocation(other).ofField(\"value\").getAndSet(value) + level().length();\n" +
+            "    }\n" +
+            "}\n",
+    };
+    private static Map<String, byte[]> templates;
+
+    private Generator() {}
+
+    /**
+     * A generated project
+     */
+    public static final class Project {
+        /**
+         * The classes to recompile, by entry name
+         */
+        public final Map<String, byte[]> classes = new LinkedHashMap<>();
+
+        /**
+         * The classes of the single dependency, by entry name
+         */
+        public final Map<String, byte[]> library = new LinkedHashMap<>();
+
+        private Project() {}
+    }
+
+    /**
+     * Generates a project that stresses every stage of the pipeline.
+     * <ul>
+     *     <li>The library holds as many classes as the project, in hierarchies 32 classes deep, over a graph of interfaces where each extends up to three others</li>
+     *     <li>Project classes form hierarchies 64 classes deep that start in the library, 1000 classes to a package</li>
+     *     <li>Every project class uses <code>@Bridge</code> and six <code>Invocation</code> shapes, and every fourth class is forked into four <code>LANGUAGE_LEVEL</code> versions</li>
+     * </ul>
+     *
+     * @param size Number of classes to recompile
+     * @return Generated project
+     */
+    public static Project project(int size) {
+        final Project project = new Project();
+        final int interfaces = Math.max(4, size / 16);
+        for (int i = 0; i != interfaces; ++i) {
+            final String[] extended = (i == 0)? null : (i < 3 || i / 2 == i / 3)? new String[] {"lib/I" + (i - 1)} :
+                    new String[] {"lib/I" + (i - 1), "lib/I" + (i / 2), "lib/I" + (i / 3)};
+            final ClassWriter cw = new ClassWriter(0);
+            cw.visit(V21, ACC_PUBLIC | ACC_ABSTRACT | ACC_INTERFACE, "lib/I" + i, null, "java/lang/Object", extended);
+            cw.visitEnd();
+            project.library.put("lib/I" + i + ".class", cw.toByteArray());
+        }
+        for (int i = 0; i != size; ++i) {
+            final String parent = (i % LIBRARY_CHAIN == 0)? "java/lang/Object" : "lib/C" + (i - 1);
+            final int a = i % interfaces, b = (i * 7) % interfaces;
+            final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+            cw.visit(V21, ACC_PUBLIC, "lib/C" + i, null, parent, (a == b)? new String[] {"lib/I" + a} : new String[] {"lib/I" + a, "lib/I" + b});
+            constructor(cw, parent);
+            cw.visitEnd();
+            project.library.put("lib/C" + i + ".class", cw.toByteArray());
+        }
+
+        final Map<String, byte[]> templates = templates();
+        final Map<String, String> mapping = new HashMap<>();
+        for (int i = 0; i != size; ++i) {
+            final String template = (i % 4 == 3)? "template/Forked" : "template/Unit";
+            final String name = unit(i);
+            mapping.put(template, name);
+            mapping.put("template/Parent", (i % CHAIN == 0)? "lib/C" + i : unit(i - 1));
+            mapping.put("template/Api", "lib/I" + (i % interfaces));
+            final ClassWriter cw = new ClassWriter(0);
+            new ClassReader(templates.get(template)).accept(new ClassRemapper(cw, new SimpleRemapper(mapping)), 0);
+            project.classes.put(name + ".class", cw.toByteArray());
+            mapping.clear();
+        }
+        return project;
+    }
+
+    private static String unit(int index) {
+        return "app/p" + (index / PACKAGE) + "/U" + index;
+    }
+
+    private static synchronized Map<String, byte[]> templates() {
+        if (templates == null) try {
+            final Path work = Files.createTempDirectory("bridge-templates");
+            try {
+                final Path sources = Files.createDirectories(work.resolve("template"));
+                final String[] args = new String[TEMPLATES.length + 7];
+                int i = 0;
+                args[i++] = "--release";
+                args[i++] = "21";
+                args[i++] = "-proc:none";
+                args[i++] = "-cp";
+                args[i++] = Fixture.source(Invocation.class).getPath();
+                args[i++] = "-d";
+                args[i++] = work.resolve("classes").toString();
+                for (String source : TEMPLATES) {
+                    final String name = source.substring(source.indexOf(' ', source.indexOf("public ") + 7) + 1);
+                    final Path file = sources.resolve(name.substring(0, name.indexOf(' ')) + ".java");
+                    Files.writeString(file, source);
+                    args[i++] = file.toString();
+                }
+                final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+                if (javac == null || javac.run(null, null, null, args) != 0) throw new IllegalStateException("Could not compile project templates");
+                final Map<String, byte[]> classes = new HashMap<>();
+                for (String name : new String[] {"template/Unit", "template/Forked"}) {
+                    classes.put(name, Files.readAllBytes(work.resolve("classes").resolve(name.replace('/', File.separatorChar) + ".class")));
+                }
+                templates = classes;
+            } finally {
+                try (Stream<Path> files = Files.walk(work)) {
+                    for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.delete(path);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return templates;
+    }
+
+    /**
+     * Generates a deep class hierarchy over a chain of interfaces.
+     * <ul>
+     *     <li><code>I0</code> to <code>I(width - 1)</code> each extend the previous interface</li>
+     *     <li><code>C0</code> to <code>C(depth - 1)</code> each extend the previous class and implement one of the interfaces</li>
+     *     <li><code>L0</code> to <code>L(depth - 1)</code> each extend their matching class and merge two leaves in <code>pick(Z)</code>, so frame computation has to find their common super class</li>
+     * </ul>
+     *
+     * @param pkg Internal package name (e.g. <code>synthetic/</code>)
+     * @param depth Number of classes in the chain
+     * @param width Number of interfaces in the chain
+     * @return Class file contents by entry name
+     */
+    public static Map<String, byte[]> hierarchy(String pkg, int depth, int width) {
+        final Map<String, byte[]> classes = new LinkedHashMap<>();
+        for (int i = 0; i != width; ++i) {
+            final ClassWriter cw = new ClassWriter(0);
+            cw.visit(V21, ACC_PUBLIC | ACC_ABSTRACT | ACC_INTERFACE, pkg + 'I' + i, null, "java/lang/Object", (i == 0)? null : new String[] {pkg + 'I' + (i - 1)});
+            cw.visitEnd();
+            classes.put(pkg + 'I' + i + ".class", cw.toByteArray());
+        }
+        for (int i = 0; i != depth; ++i) {
+            final String parent = (i == 0)? "java/lang/Object" : pkg + 'C' + (i - 1);
+            final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+            cw.visit(V21, ACC_PUBLIC, pkg + 'C' + i, null, parent, new String[] {pkg + 'I' + (i % width)});
+            constructor(cw, parent);
+            cw.visitEnd();
+            classes.put(pkg + 'C' + i + ".class", cw.toByteArray());
+        }
+        for (int i = 0; i != depth; ++i) {
+            final String name = pkg + 'L' + i, sibling = pkg + 'L' + (i / 2);
+            final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+            cw.visit(V21, ACC_PUBLIC, name, null, pkg + 'C' + i, null);
+            constructor(cw, pkg + 'C' + i);
+
+            final MethodVisitor mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, "pick", "(Z)L" + pkg + "C0;", null, null);
+            final Label other = new Label(), end = new Label();
+            mv.visitCode();
+            mv.visitVarInsn(ILOAD, 0);
+            mv.visitJumpInsn(IFEQ, other);
+            mv.visitTypeInsn(NEW, name);
+            mv.visitInsn(DUP);
+            mv.visitMethodInsn(INVOKESPECIAL, name, "<init>", "()V", false);
+            mv.visitJumpInsn(GOTO, end);
+            mv.visitLabel(other);
+            mv.visitFrame(F_SAME, 0, null, 0, null);
+            mv.visitTypeInsn(NEW, sibling);
+            mv.visitInsn(DUP);
+            mv.visitMethodInsn(INVOKESPECIAL, sibling, "<init>", "()V", false);
+            mv.visitLabel(end);
+            mv.visitFrame(F_SAME1, 0, null, 1, new Object[] {pkg + 'C' + (i / 2)});
+            mv.visitInsn(ARETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+
+            cw.visitEnd();
+            classes.put(name + ".class", cw.toByteArray());
+        }
+        return classes;
+    }
+
+    /**
+     * Generates a class with a single pathological method, <code>static int run(int)</code>, for the code cleanup pass.
+     * <ul>
+     *     <li><code>labels</code>: a branch, a jump, and unreachable code per label, each covered by a local variable</li>
+     *     <li><code>handlers</code>: try-catch blocks nested within each other, with a label in every level</li>
+     *     <li><code>switch</code>: a table switch where each case jumps past the others</li>
+     * </ul>
+     *
+     * @param name Internal class name
+     * @param shape One of <code>labels</code>, <code>handlers</code>, or <code>switch</code>
+     * @param size Number of labels, handlers, or cases
+     * @return Class file contents
+     */
+    public static byte[] method(String name, String shape, int size) {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        cw.visit(V21, ACC_PUBLIC, name, null, "java/lang/Object", null);
+        constructor(cw, "java/lang/Object");
+
+        final MethodVisitor mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, "run", "(I)I", null, null);
+        final Label first = new Label(), last = new Label();
+        mv.visitCode();
+        mv.visitInsn(ICONST_0);
+        mv.visitVarInsn(ISTORE, 1);
+        mv.visitLabel(first);
+        switch (shape) {
+            case "labels":
+                for (int i = 0; i != size; ++i) {
+                    final Label label = new Label();
+                    mv.visitVarInsn(ILOAD, 0);
+                    mv.visitJumpInsn(IFEQ, label);
+                    mv.visitIincInsn(1, 1);
+                    mv.visitJumpInsn(GOTO, label);
+                    mv.visitIincInsn(1, -1);
+                    mv.visitLabel(label);
+                    mv.visitLocalVariable("v" + i, "I", null, first, label, 1);
+                }
+                break;
+            case "handlers": {
+                final Label[] starts = new Label[size], ends = new Label[size], handlers = new Label[size];
+                for (int i = 0; i != size; ++i) {
+                    mv.visitTryCatchBlock(starts[i] = new Label(), ends[i] = new Label(), handlers[i] = new Label(), (i % 2 == 0)? null : "java/lang/RuntimeException");
+                }
+                for (int i = 0; i != size; ++i) {
+                    mv.visitLabel(starts[i]);
+                    mv.visitIincInsn(1, 1);
+                }
+                mv.visitVarInsn(ILOAD, 0);
+                mv.visitVarInsn(ILOAD, 1);
+                mv.visitInsn(IDIV);
+                mv.visitVarInsn(ISTORE, 1);
+                for (int i = size; i-- != 0;) {
+                    mv.visitLabel(ends[i]);
+                    mv.visitIincInsn(1, -1);
+                }
+                mv.visitJumpInsn(GOTO, last);
+                for (int i = 0; i != size; ++i) {
+                    mv.visitLabel(handlers[i]);
+                    mv.visitInsn(POP);
+                    mv.visitJumpInsn(GOTO, last);
+                }
+                break;
+            }
+            case "switch": {
+                final Label[] cases = new Label[size];
+                final Label dflt = new Label();
+                for (int i = 0; i != size; ++i) cases[i] = new Label();
+                mv.visitVarInsn(ILOAD, 0);
+                mv.visitTableSwitchInsn(0, size - 1, dflt, cases);
+                for (int i = 0; i != size; ++i) {
+                    mv.visitLabel(cases[i]);
+                    mv.visitIincInsn(1, 1);
+                    mv.visitJumpInsn(GOTO, last);
+                }
+                mv.visitLabel(dflt);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown method shape: " + shape);
+        }
+        mv.visitLabel(last);
+        mv.visitVarInsn(ILOAD, 1);
+        mv.visitInsn(IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void constructor(ClassWriter cw, String parent) {
+        final MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, parent, "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+}
@@ -0,0 +1,105 @@
+package bridge.bench;
+
+import bridge.asm.ClassHeader;
+import bridge.asm.HierarchicalWriter;
+import bridge.asm.KnownType;
+import bridge.asm.TypeMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks class hierarchy resolution over a synthetic hierarchy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HierarchyBenchmark {
+    private static final String[] JDK = {
+            "java/util/ArrayList", "java/util/LinkedList", "java/util/HashMap", "java/util/TreeMap",
+            "java/util/concurrent/ConcurrentHashMap", "java/util/concurrent/ConcurrentLinkedQueue",
+            "java/lang/StringBuilder", "java/lang/IllegalArgumentException", "java/lang/invoke/MethodHandle",
+            "java/io/BufferedInputStream", "java/nio/file/Path", "java/util/stream/Stream",
+    };
+
+    @Param({"64", "1024"})
+    public int depth;
+
+    @Param({"8"})
+    public int width;
+
+    private byte[][] classes;
+    private ClassHeader[] headers;
+    private KnownType[] leaves, interfaces;
+    private String[] names;
+    private Writer writer;
+
+    private static final class Writer extends HierarchicalWriter {
+        private Writer(TypeMap types) {
+            super(types, 0);
+        }
+
+        private String common(String type1, String type2) {
+            return getCommonSuperClass(type1, type2);
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        final TypeMap types = new TypeMap();
+        classes = Generator.hierarchy("synthetic/", depth, width).values().toArray(new byte[0][]);
+        headers = new ClassHeader[classes.length];
+        for (int i = 0; i != classes.length; ++i) {
+            (headers[i] = ClassHeader.read(new ByteArrayInputStream(classes[i]))).compile(types);
+        }
+        leaves = new KnownType[depth];
+        names = new String[depth];
+        for (int i = 0; i != depth; ++i) leaves[i] = types.loadClass(names[i] = "synthetic/L" + i);
+        interfaces = new KnownType[width];
+        for (int i = 0; i != width; ++i) interfaces[i] = types.loadClass("synthetic/I" + i);
+        writer = new Writer(types);
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) throws IOException {
+        for (byte[] data : classes) blackhole.consume(ClassHeader.read(new ByteArrayInputStream(data)));
+    }
+
+    @Benchmark
+    public TypeMap compile() {
+        final TypeMap types = new TypeMap();
+        for (ClassHeader header : headers) header.compile(types);
+        return types;
+    }
+
+    @Benchmark
+    public TypeMap load() {
+        final TypeMap types = new TypeMap();
+        for (String name : JDK) types.loadClass(name);
+        return types;
+    }
+
+    @Benchmark
+    public int implemented() {
+        int count = 0;
+        for (KnownType leaf : leaves) for (KnownType type : interfaces) {
+            if (leaf.implemented(type)) ++count;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public void commonSuperClass(Blackhole blackhole) {
+        final String[] names = this.names;
+        for (int i = 0; i != names.length; ++i) {
+            blackhole.consume(writer.common(names[i], names[i / 2]));
+            blackhole.consume(writer.common(names[i], names[names.length - 1 - i]));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package bridge.bench;
+
+import bridge.Invocation;
+import bridge.mvn.BridgeCompiler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Recompiles generated projects of increasing size and checks the cost against a budget
+ * <p>
+ * Usage: <code>java -cp benchmarks.jar bridge.bench.Scalability [budgets.properties] [sizes...]</code>
+ * <p>
+ * Each project is written to disk and recompiled the same way the <code>bridge</code> goal would, with its dependency packaged as a jar.
+ * Wall time, peak heap, and allocation rate are recorded for every size, and the exit status is 1 if any of them exceeds its budget.
+ * Budgets are read from <code>&lt;size&gt;.time</code> (seconds), <code>&lt;size&gt;.heap</code> (MiB), and <code>&lt;size&gt;.allocation</code> (MiB/s),
+ * and may also be given as system properties prefixed with <code>bridge.budget.</code>
+ */
+public final class Scalability {
+    private static final int[] SIZES = {1000, 10000, 100000};
+    private static final String[][] BUDGETS = {
+            {"1000.time", "10"},    {"1000.heap", "256"},    {"1000.allocation", "2048"},
+            {"10000.time", "60"},   {"10000.heap", "1024"},  {"10000.allocation", "2048"},
+            {"100000.time", "300"}, {"100000.heap", "4096"}, {"100000.allocation", "2048"},
+    };
+    private static final BridgeCompiler.Logger QUIET = new BridgeCompiler.Logger() {
+        @Override
+        public boolean isDebugEnabled() {
+            return false;
+        }
+
+        @Override
+        public void debug(String message) {}
+
+        @Override
+        public void info(String message) {}
+
+        @Override
+        public void warn(String message) {
+            System.err.println(message);
+        }
+    };
+
+    private Scalability() {}
+
+    public static void main(String[] args) throws IOException {
+        final Properties budgets = new Properties();
+        for (String[] budget : BUDGETS) budgets.setProperty(budget[0], budget[1]);
+        int i = 0;
+        if (args.length != 0 && args[0].endsWith(".properties")) {
+            try (InputStream stream = new FileInputStream(args[i++])) {
+                budgets.load(stream);
+            }
+        }
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("bridge.budget.")) budgets.setProperty(key.substring(14), System.getProperty(key));
+        }
+        final int[] sizes = (i == args.length)? SIZES : Arrays.stream(args, i, args.length).mapToInt(Integer::parseInt).toArray();
+        final File api = Fixture.source(Invocation.class);
+
+        boolean exceeded = false;
+        System.out.printf("%8s  %12s  %12s  %14s%n", "Classes", "Time (s)", "Heap (MiB)", "Alloc (MiB/s)");
+        for (int size : sizes) {
+            final Path work = Files.createTempDirectory("bridge-scalability");
+            try {
+                final File classes = work.resolve("classes").toFile();
+                final File library = work.resolve("library.jar").toFile();
+                write(classes, library, Generator.project(size));
+
+                final Measurement measurement = measure(classes, List.of(library, api));
+                final double time = measurement.time / 1e9, heap = measurement.heap / 1048576D, allocation = measurement.allocated / 1048576D / time;
+                System.out.printf("%8d  %12.3f  %12.1f  %14.1f%n", size, time, heap, allocation);
+                exceeded |= exceeds(budgets, size + ".time", time);
+                exceeded |= exceeds(budgets, size + ".heap", heap);
+                exceeded |= exceeds(budgets, size + ".allocation", allocation);
+            } finally {
+                try (Stream<Path> files = Files.walk(work)) {
+                    for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.delete(path);
+                }
+            }
+        }
+        if (exceeded) System.exit(1);
+    }
+
+    private static final class Measurement {
+        final long time, heap, allocated;
+
+        private Measurement(long time, long heap, long allocated) {
+            this.time = time;
+            this.heap = heap;
+            this.allocated = allocated;
+        }
+    }
+
+    private static Measurement measure(File classes, List<File> classpath) throws IOException {
+        final List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        System.gc();
+        for (MemoryPoolMXBean pool : pools) pool.resetPeakUsage();
+
+        // Pool threads are only counted while they are alive, so allocation is read before the compiler is closed
+        final long allocated = threads.getTotalThreadAllocatedBytes();
+        final long time = System.nanoTime();
+        final BridgeCompiler compiler = new BridgeCompiler(0, 0, null, QUIET);
+        try {
+            for (BridgeCompiler.Result result : compiler.compile(List.of(classes), classpath)) compiler.write(classes, result);
+            final long elapsed = System.nanoTime() - time;
+            long heap = 0;
+            for (MemoryPoolMXBean pool : pools) {
+                if (pool.getType() == MemoryType.HEAP) heap += pool.getPeakUsage().getUsed();
+            }
+            return new Measurement(elapsed, heap, threads.getTotalThreadAllocatedBytes() - allocated);
+        } finally {
+            compiler.close();
+        }
+    }
+
+    private static boolean exceeds(Properties budgets, String key, double value) {
+        final String budget = budgets.getProperty(key);
+        if (budget == null || value <= Double.parseDouble(budget)) return false;
+        System.out.printf("Exceeded %s budget: %.1f > %s%n", key, value, budget);
+        return true;
+    }
+
+    private static void write(File classes, File library, Generator.Project project) throws IOException {
+        for (Map.Entry<String, byte[]> e : project.classes.entrySet()) {
+            final File file = new File(classes, e.getKey());
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), e.getValue());
+        }
+        try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(library))) {
+            for (Map.Entry<String, byte[]> e : project.library.entrySet()) {
+                jar.putNextEntry(new JarEntry(e.getKey()));
+                jar.write(e.getValue());
+                jar.closeEntry();
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package bridge.bench.runtime;
+
+import bridge.Invocation;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the runtime cost of recompiled invocations and bridges against direct access, method handles, and reflection
+ * <p>
+ * Each shape is measured with primitive operands and again with boxed operands, where the generated code has to convert between them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvocationBenchmark {
+    private static final MethodHandle SUM, ADD, NEW, ARRAY, GET, SET;
+    private static final Method SUM_METHOD, ADD_METHOD;
+    private static final Constructor<Target> CONSTRUCTOR;
+    private static final Field FIELD;
+
+    static {
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            SUM = lookup.findStatic(Target.class, "sum", MethodType.methodType(int.class, int.class, int.class));
+            ADD = lookup.findVirtual(Target.class, "add", MethodType.methodType(int.class, int.class));
+            NEW = lookup.findConstructor(Target.class, MethodType.methodType(void.class, int.class));
+            ARRAY = MethodHandles.arrayConstructor(int[].class);
+            GET = lookup.findGetter(Target.class, "value", int.class);
+            SET = lookup.findSetter(Target.class, "value", int.class);
+            (SUM_METHOD = Target.class.getDeclaredMethod("sum", int.class, int.class)).setAccessible(true);
+            (ADD_METHOD = Target.class.getDeclaredMethod("add", int.class)).setAccessible(true);
+            (CONSTRUCTOR = Target.class.getDeclaredConstructor(int.class)).setAccessible(true);
+            (FIELD = Target.class.getDeclaredField("value")).setAccessible(true);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Target target = new Target(1);
+    private int x = 7, y = 9, size = 16;
+    private Integer boxedX = 7, boxedY = 9;
+    private Object object = 7;
+
+
+
+    @Benchmark
+    public int staticDirect() {
+        return Target.sum(x, y);
+    }
+
+    @Benchmark
+    public int staticInvocation() {
+        return new Invocation(Target.class).ofMethod("sum").with(x).with(y).invoke();
+    }
+
+    @Benchmark
+    public Integer staticInvocationBoxed() {
+        return new Invocation(Target.class).ofMethod(int.class, "sum").with(int.class, boxedX).with(int.class, boxedY).invoke();
+    }
+
+    @Benchmark
+    public int staticHandle() throws Throwable {
+        return (int) SUM.invokeExact(x, y);
+    }
+
+    @Benchmark
+    public Object staticReflection() throws ReflectiveOperationException {
+        return SUM_METHOD.invoke(null, boxedX, boxedY);
+    }
+
+
+
+    @Benchmark
+    public int virtualDirect() {
+        return target.add(x);
+    }
+
+    @Benchmark
+    public int virtualInvocation() {
+        return new Invocation(target).ofMethod("add").with(x).invoke();
+    }
+
+    @Benchmark
+    public Integer virtualInvocationBoxed() {
+        return new Invocation(target).ofMethod(int.class, "add").with(int.class, boxedX).invoke();
+    }
+
+    @Benchmark
+    public int virtualHandle() throws Throwable {
+        return (int) ADD.invokeExact(target, x);
+    }
+
+    @Benchmark
+    public Object virtualReflection() throws ReflectiveOperationException {
+        return ADD_METHOD.invoke(target, boxedX);
+    }
+
+    @Benchmark
+    public long virtualBridge() {
+        return new Invocation(target).ofMethod(long.class, "addLong").with(long.class, (long) x).invoke();
+    }
+
+    @Benchmark
+    public Integer virtualBridgeBoxed() {
+        return new Invocation(target).ofMethod(Integer.class, "addBoxed").with(Integer.class, boxedX).invoke();
+    }
+
+    @Benchmark
+    public Object virtualBridgeObject() {
+        return new Invocation(target).ofMethod(Object.class, "addObject").with(Object.class, object).invoke();
+    }
+
+
+
+    @Benchmark
+    public Target constructorDirect() {
+        return new Target(x);
+    }
+
+    @Benchmark
+    public Target constructorInvocation() {
+        return new Invocation(Target.class).ofConstructor().with(x).invoke();
+    }
+
+    @Benchmark
+    public Target constructorInvocationBoxed() {
+        return new Invocation(Target.class).ofConstructor().with(int.class, boxedX).invoke();
+    }
+
+    @Benchmark
+    public Target constructorHandle() throws Throwable {
+        return (Target) NEW.invokeExact(x);
+    }
+
+    @Benchmark
+    public Target constructorReflection() throws ReflectiveOperationException {
+        return CONSTRUCTOR.newInstance(boxedX);
+    }
+
+    @Benchmark
+    public Target constructorBridge() {
+        return new Invocation(Target.class).ofConstructor().with(Object.class, object).invoke();
+    }
+
+
+
+    @Benchmark
+    public int[] arrayDirect() {
+        return new int[size];
+    }
+
+    @Benchmark
+    public int[] arrayInvocation() {
+        return new Invocation(int[].class).ofConstructor().with(size).invoke();
+    }
+
+    @Benchmark
+    public int[] arrayHandle() throws Throwable {
+        return (int[]) ARRAY.invokeExact(size);
+    }
+
+    @Benchmark
+    public Object arrayReflection() {
+        return Array.newInstance(int.class, size);
+    }
+
+
+
+    @Benchmark
+    public int getDirect() {
+        return target.value;
+    }
+
+    @Benchmark
+    public int getInvocation() {
+        return new Invocation(target).ofField("value").get();
+    }
+
+    @Benchmark
+    public Integer getInvocationBoxed() {
+        return new Invocation(target).ofField(int.class, "value").get();
+    }
+
+    @Benchmark
+    public int getHandle() throws Throwable {
+        return (int) GET.invokeExact(target);
+    }
+
+    @Benchmark
+    public int getReflection() throws ReflectiveOperationException {
+        return FIELD.getInt(target);
+    }
+
+    @Benchmark
+    public Integer getBridge() {
+        return new Invocation(target).ofField(Integer.class, "boxed").get();
+    }
+
+    @Benchmark
+    public long getBridgeWide() {
+        return new Invocation(target).ofField(long.class, "wide").get();
+    }
+
+
+
+    @Benchmark
+    public void setDirect() {
+        target.value = x;
+    }
+
+    @Benchmark
+    public void setInvocation() {
+        new Invocation(target).ofField("value").set(x);
+    }
+
+    @Benchmark
+    public void setInvocationBoxed() {
+        new Invocation(target).ofField(int.class, "value").set(boxedX);
+    }
+
+    @Benchmark
+    public void setHandle() throws Throwable {
+        SET.invokeExact(target, x);
+    }
+
+    @Benchmark
+    public void setReflection() throws ReflectiveOperationException {
+        FIELD.setInt(target, x);
+    }
+
+
+
+    @Benchmark
+    public int getAndSetDirect() {
+        final int value = target.value;
+        target.value = x;
+        return value;
+    }
+
+    @Benchmark
+    public int getAndSetInvocation() {
+        return new Invocation(target).ofField("value").getAndSet(x);
+    }
+
+    @Benchmark
+    public Integer getAndSetInvocationBoxed() {
+        return new Invocation(target).ofField(int.class, "value").getAndSet(boxedX);
+    }
+
+    @Benchmark
+    public int setAndGetDirect() {
+        return target.value = x;
+    }
+
+    @Benchmark
+    public int setAndGetInvocation() {
+        return new Invocation(target).ofField("value").setAndGet(x);
+    }
+
+    @Benchmark
+    public Integer setAndGetInvocationBoxed() {
+        return new Invocation(target).ofField(int.class, "value").setAndGet(boxedX);
+    }
+}
@@ -0,0 +1,29 @@
+package bridge.bench.runtime;
+
+import bridge.Bridge;
+
+final class Target {
+    static int total;
+
+    @Bridge(name = "boxed", returns = Integer.class)
+    @Bridge(name = "wide", returns = long.class)
+    int value;
+
+    Target() {}
+
+    @Bridge(params = Object.class)
+    Target(int value) {
+        this.value = value;
+    }
+
+    static int sum(int a, int b) {
+        return a + b;
+    }
+
+    @Bridge(name = "addBoxed", params = Integer.class, returns = Integer.class)
+    @Bridge(name = "addObject", params = Object.class, returns = Object.class)
+    @Bridge(name = "addLong", params = long.class, returns = long.class)
+    int add(int x) {
+        return value + x;
+    }
+}
@@ -0,0 +1,51 @@
+package bridge.mvn;
+
+import bridge.asm.TypeMap;
+import bridge.bench.Generator;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.tree.ClassNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.objectweb.asm.Opcodes.ASM9;
+
+// Benchmarks the code cleanup pass against generated methods with thousands of labels, nested handlers, or switch cases
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CleanBenchmark {
+    private static final ClassVisitor SINK = new ClassVisitor(ASM9) {
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            return new MethodVisitor(ASM9) {};
+        }
+    };
+
+    @Param({"labels", "handlers", "switch"})
+    public String shape;
+
+    @Param({"1000", "4000"})
+    public int size;
+
+    private ClassNode node;
+    private BridgeVisitor visitor;
+    private int version;
+
+    @Setup
+    public void setup() {
+        final byte[] data = Generator.method("synthetic/Clean", shape, size);
+        new ClassReader(data).accept(visitor = new BridgeVisitor(node = new ClassNode(), new TypeMap()), ClassReader.EXPAND_FRAMES);
+        version = visitor.forks.keySet().iterator().next();
+    }
+
+    @Benchmark
+    public void clean() {
+        node.accept(new ForkVisitor(SINK, visitor, version, 0));
+    }
+}
@@ -0,0 +1,144 @@
+package bridge.mvn;
+
+import bridge.Invocation;
+import bridge.asm.HierarchicalWriter;
+import bridge.asm.TypeMap;
+import bridge.bench.Fixture;
+import bridge.bench.Generator;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.tree.ClassNode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.objectweb.asm.Opcodes.ASM9;
+
+// Benchmarks each stage of class recompilation. This lives in the plugin's package so it can drive the visitors directly.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+    private static final ClassVisitor SINK = new ClassVisitor(ASM9) {
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            return new MethodVisitor(ASM9) {};
+        }
+    };
+    private static final BridgeCompiler.Logger QUIET = new BridgeCompiler.Logger() {
+        @Override
+        public boolean isDebugEnabled() {
+            return false;
+        }
+
+        @Override
+        public void debug(String message) {}
+
+        @Override
+        public void info(String message) {}
+
+        @Override
+        public void warn(String message) {}
+    };
+
+    @Param({"fixture", "synthetic"})
+    public String input;
+
+    private BridgeCompiler compiler;
+    private TypeMap types;
+    private String[] paths;
+    private byte[][] classes, outputs;
+    private ClassNode[] nodes;
+    private BridgeVisitor[] visitors;
+    private int[][] forks;
+
+    @Setup
+    public void setup() throws IOException {
+        final Map<String, byte[]> input = (this.input.equals("fixture"))?
+                Fixture.classes("bridge/objects/", "bridge/primitives/") : Generator.hierarchy("synthetic/", 256, 8);
+        compiler = new BridgeCompiler(0, 1, null, QUIET);
+        types = compiler.types;
+        paths = input.keySet().toArray(new String[0]);
+        classes = input.values().toArray(new byte[0][]);
+        for (int i = 0; i != paths.length; ++i) compiler.add(paths[i], classes[i]);
+        compiler.resolve(new LinkedHashSet<>(Arrays.asList(Fixture.SOURCE, Fixture.source(Invocation.class))));
+
+        nodes = new ClassNode[classes.length];
+        visitors = new BridgeVisitor[classes.length];
+        forks = new int[classes.length][];
+        final List<byte[]> outputs = new ArrayList<>();
+        for (int i = 0; i != classes.length; ++i) {
+            new ClassReader(classes[i]).accept(visitors[i] = new BridgeVisitor(nodes[i] = new ClassNode(), types), ClassReader.EXPAND_FRAMES);
+            forks[i] = visitors[i].forks.keySet().stream().mapToInt(Integer::intValue).toArray();
+            for (int version : forks[i]) {
+                final FrameWriter writer = new FrameWriter(types, null);
+                nodes[i].accept(new ForkVisitor(writer, visitors[i], version, 0));
+                outputs.add(writer.toByteArray());
+            }
+        }
+        this.outputs = outputs.toArray(new byte[0][]);
+    }
+
+    @TearDown(Level.Iteration)
+    public void reset() {
+        compiler.report.classes.clear();
+    }
+
+    @TearDown
+    public void close() {
+        compiler.close();
+    }
+
+    @Benchmark
+    public void transform(Blackhole blackhole) {
+        for (byte[] data : classes) {
+            final BridgeVisitor visitor = new BridgeVisitor(new ClassNode(), types);
+            new ClassReader(data).accept(visitor, ClassReader.EXPAND_FRAMES);
+            blackhole.consume(visitor);
+        }
+    }
+
+    @Benchmark
+    public void fork() {
+        for (int i = 0; i != nodes.length; ++i) {
+            for (int version : forks[i]) nodes[i].accept(new ForkVisitor(SINK, visitors[i], version, 0));
+        }
+    }
+
+    @Benchmark
+    public void frames(Blackhole blackhole) {
+        for (byte[] data : outputs) {
+            final ClassWriter writer = new HierarchicalWriter(types, ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+            new ClassReader(data).accept(writer, ClassReader.SKIP_FRAMES);
+            blackhole.consume(writer.toByteArray());
+        }
+    }
+
+    @Benchmark
+    public void emit(Blackhole blackhole) {
+        for (int i = 0; i != nodes.length; ++i) {
+            for (int version : forks[i]) {
+                final FrameWriter writer = new FrameWriter(types, null);
+                nodes[i].accept(new ForkVisitor(writer, visitors[i], version, 0));
+                blackhole.consume(writer.toByteArray());
+            }
+        }
+    }
+
+    @Benchmark
+    public void compile(Blackhole blackhole) {
+        for (int i = 0; i != paths.length; ++i) blackhole.consume(compiler.transform(paths[i], classes[i]));
+    }
+}
@@ -0,0 +1,57 @@
+package bridge.gradle;
+
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.type.ArtifactTypeDefinition;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.compile.JavaCompile;
+
+import java.io.File;
+
+/**
+ * Recompiles bridge features in the main source set of java projects
+ */
+public class BridgePlugin implements Plugin<Project> {
+    public static final String HIERARCHY_TYPE = "bridge-hierarchy";
+
+    @Override
+    public void apply(Project project) {
+        project.getPluginManager().withPlugin("java", java -> {
+            for (String type : new String[] {ArtifactTypeDefinition.JAR_TYPE, ArtifactTypeDefinition.JVM_CLASS_DIRECTORY}) {
+                project.getDependencies().registerTransform(HierarchyTransform.class, spec -> {
+                    spec.getFrom().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, type);
+                    spec.getTo().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, HIERARCHY_TYPE);
+                });
+            }
+
+            final SourceSet main = project.getExtensions().getByType(JavaPluginExtension.class).getSourceSets().getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+            final FileCollection outputs = main.getOutput().getClassesDirs();
+            if (!(outputs instanceof ConfigurableFileCollection)) {
+                project.getLogger().warn("Bridge cannot replace the classes of " + main + " in " + project);
+                return;
+            }
+            final ConfigurableFileCollection classes = (ConfigurableFileCollection) outputs;
+            final ConfigurableFileCollection compiled = project.files(classes.getFrom().toArray());
+            compiled.builtBy(classes.getBuiltBy().toArray());
+            final TaskProvider<BridgeTask> bridge = project.getTasks().register("bridge", BridgeTask.class, task -> {
+                task.setGroup("build");
+                task.setDescription("Compiles bridge features in " + main + '.');
+                task.getClasses().from(compiled);
+                task.getHierarchy().from(project.getConfigurations().named(main.getCompileClasspathConfigurationName()).map(configuration ->
+                        configuration.getIncoming().artifactView(view -> view.attributes(attributes ->
+                                attributes.attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, HIERARCHY_TYPE)
+                        )).getFiles()
+                ));
+                task.getRelease().convention(project.getTasks().named(main.getCompileJavaTaskName(), JavaCompile.class).flatMap(compile -> compile.getOptions().getRelease()));
+                task.getCache().convention(project.getLayout().dir(project.provider(() -> new File(project.getGradle().getGradleUserHomeDir(), "caches/bridge"))));
+                task.getDestinationDirectory().convention(project.getLayout().getBuildDirectory().dir("bridge/" + main.getName()));
+            });
+            classes.setFrom(bridge.flatMap(BridgeTask::getDestinationDirectory));
+            project.getTasks().named(main.getClassesTaskName()).configure(task -> task.dependsOn(bridge));
+        });
+    }
+}
@@ -0,0 +1,128 @@
+package bridge.gradle;
+
+import bridge.mvn.BridgeCompiler;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.*;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Compiles bridge features in application classes
+ */
+@CacheableTask
+public abstract class BridgeTask extends DefaultTask {
+
+    /**
+     * The compiled classes to recompile
+     */
+    @InputFiles
+    @SkipWhenEmpty
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getClasses();
+
+    /**
+     * The class hierarchy snapshots of the dependencies
+     */
+    @Classpath
+    public abstract ConfigurableFileCollection getHierarchy();
+
+    /**
+     * Flags to apply when recompiling classes
+     */
+    @Input
+    public abstract ListProperty<String> getFlags();
+
+    /**
+     * The java release to resolve platform classes against (defaults to the release of the running JDK)
+     */
+    @Optional
+    @Input
+    public abstract Property<Integer> getRelease();
+
+    /**
+     * The number of threads to recompile classes with (values less than 1 use one thread per processor)
+     */
+    @Internal
+    public abstract Property<Integer> getThreads();
+
+    /**
+     * The directory to cache the platform class hierarchy in
+     */
+    @Optional
+    @Internal
+    public abstract DirectoryProperty getCache();
+
+    /**
+     * The directory to write recompiled classes to
+     */
+    @OutputDirectory
+    public abstract DirectoryProperty getDestinationDirectory();
+
+    /**
+     * The file to write a JSON build performance report to
+     */
+    @Optional
+    @OutputFile
+    public abstract RegularFileProperty getReport();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    public BridgeTask() {
+        getThreads().convention(1);
+    }
+
+    @TaskAction
+    public void execute() throws IOException {
+        final Logger log = getLogger();
+        int flags = 0;
+        for (String flag : getFlags().get()) {
+            final int value;
+            if ((value = BridgeCompiler.flag(flag)) == 0) {
+                log.warn("Unknown recompilation flag: " + flag);
+            }
+            flags |= value;
+        }
+
+        final File output = getDestinationDirectory().get().getAsFile();
+        getFileSystemOperations().sync(spec -> spec.from(getClasses()).into(output));
+        try (BridgeCompiler compiler = new BridgeCompiler(flags, getRelease().getOrElse(0), getThreads().get(), (getCache().isPresent())? getCache().get().getAsFile() : null, new BridgeCompiler.Logger() {
+            @Override
+            public boolean isDebugEnabled() {
+                return log.isDebugEnabled();
+            }
+
+            @Override
+            public void debug(String message) {
+                log.debug(message);
+            }
+
+            @Override
+            public void info(String message) {
+                log.info(message);
+            }
+
+            @Override
+            public void warn(String message) {
+                log.warn(message);
+            }
+        })) {
+            final List<BridgeCompiler.Result> results = compiler.compile(getClasses().getFiles(), getHierarchy().getFiles());
+            for (BridgeCompiler.Result result : results) {
+                compiler.write(output, result);
+            }
+            if (getReport().isPresent()) compiler.report(getReport().get().getAsFile());
+        }
+    }
+}
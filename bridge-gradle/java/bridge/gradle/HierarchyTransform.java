@@ -0,0 +1,70 @@
+package bridge.gradle;
+
+import bridge.asm.ClassHeader;
+import bridge.asm.HierarchyCache;
+import org.gradle.api.artifacts.transform.CacheableTransform;
+import org.gradle.api.artifacts.transform.InputArtifact;
+import org.gradle.api.artifacts.transform.TransformAction;
+import org.gradle.api.artifacts.transform.TransformOutputs;
+import org.gradle.api.artifacts.transform.TransformParameters;
+import org.gradle.api.file.FileSystemLocation;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Classpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Scans the class hierarchy of a dependency into a reusable hierarchy snapshot
+ */
+@CacheableTransform
+public abstract class HierarchyTransform implements TransformAction<TransformParameters.None> {
+
+    @InputArtifact
+    @Classpath
+    public abstract Provider<FileSystemLocation> getInputArtifact();
+
+    @Override
+    public void transform(TransformOutputs outputs) {
+        final File input = getInputArtifact().get().getAsFile();
+        if (!input.exists()) return;
+        final List<String> entries = new ArrayList<>();
+        final List<ClassHeader> headers = new ArrayList<>();
+        try {
+            if (input.isDirectory()) {
+                final Path base = input.toPath();
+                try (Stream<Path> files = Files.walk(base)) {
+                    for (Path path : (Iterable<Path>) files.sorted()::iterator) {
+                        if (!path.toString().endsWith(".class") || !Files.isRegularFile(path)) continue;
+                        try (InputStream is = Files.newInputStream(path)) {
+                            headers.add(ClassHeader.read(is));
+                        }
+                        entries.add(base.relativize(path).toString().replace(File.separatorChar, '/'));
+                    }
+                }
+            } else try (ZipFile jar = new ZipFile(input)) {
+                for (Enumeration<? extends ZipEntry> it = jar.entries(); it.hasMoreElements();) {
+                    final ZipEntry entry;
+                    if (!(entry = it.nextElement()).getName().endsWith(".class") || entry.isDirectory()) continue;
+                    try (InputStream is = jar.getInputStream(entry)) {
+                        headers.add(ClassHeader.read(is));
+                    }
+                    entries.add(entry.getName());
+                }
+            }
+            HierarchyCache.write(outputs.file(input.getName() + ".hierarchy"), entries, headers);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
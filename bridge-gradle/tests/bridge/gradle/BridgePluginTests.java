@@ -0,0 +1,46 @@
+package bridge.gradle;
+
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.artifacts.type.ArtifactTypeDefinition;
+import org.gradle.api.internal.artifacts.TransformRegistration;
+import org.gradle.api.internal.artifacts.VariantTransformRegistry;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.testfixtures.ProjectBuilder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+public class BridgePluginTests {
+
+    public void testRegistration() throws Throwable {
+        final File directory = Files.createTempDirectory("bridge-gradle").toFile();
+        directory.deleteOnExit();
+        final Project project = ProjectBuilder.builder().withProjectDir(directory).build();
+        project.getPluginManager().apply("net.ME1312.ASM.bridge");
+        if (project.getTasks().findByName("bridge") != null) throw new AssertionError("Registered a task without the java plugin");
+        project.getPluginManager().apply("java");
+
+        final Task task = project.getTasks().getByName("bridge");
+        if (!(task instanceof BridgeTask)) throw new AssertionError("Unexpected task type: " + task.getClass());
+        if (!BridgeTask.class.isAnnotationPresent(CacheableTask.class)) throw new AssertionError("The bridge task is not cacheable");
+        if (!project.getTasks().getByName("classes").getTaskDependencies().getDependencies(null).contains(task)) throw new AssertionError("The classes task does not depend on the bridge task");
+
+        final SourceSet main = project.getExtensions().getByType(JavaPluginExtension.class).getSourceSets().getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+        final File output = ((BridgeTask) task).getDestinationDirectory().get().getAsFile();
+        if (!main.getOutput().getClassesDirs().getFiles().contains(output)) throw new AssertionError("The main classes do not come from " + output);
+
+        final Set<String> types = new HashSet<>();
+        for (TransformRegistration registration : ((ProjectInternal) project).getServices().get(VariantTransformRegistry.class).getRegistrations()) {
+            if (registration.getTransformStep().getTransform().getImplementationClass() != HierarchyTransform.class) continue;
+            if (!BridgePlugin.HIERARCHY_TYPE.equals(registration.getTo().getAttribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE))) throw new AssertionError("Unexpected transform target: " + registration.getTo());
+            types.add(registration.getFrom().getAttribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE));
+        }
+        if (!types.equals(Set.of(ArtifactTypeDefinition.JAR_TYPE, ArtifactTypeDefinition.JVM_CLASS_DIRECTORY))) throw new AssertionError("Unexpected transform sources: " + types);
+    }
+}
@@ -0,0 +1,235 @@
+package bridge.mvn;
+
+import org.apache.maven.RepositoryUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.handler.manager.ArtifactHandlerManager;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.resolution.DependencyRequest;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Shared configuration for bridge goals
+ */
+public abstract class AbstractBridgeMojo extends AbstractMojo {
+    /**
+     * The maven repository system
+     */
+    @Component
+    private RepositorySystem system;
+
+    /**
+     * The maven artifact manager
+     */
+    @Component
+    private ArtifactHandlerManager manager;
+
+    /**
+     * The maven session
+     */
+    @Component
+    private MavenSession session;
+
+    /**
+     * The maven project
+     */
+    @Component
+    MavenProject project;
+
+    /**
+     * The maven plugin execution
+     */
+    @Component
+    MojoExecution execution;
+
+    /**
+     * Additional dependencies to add to the class hierarchy
+     */
+    @Parameter(property = "bridge.dependencies")
+    private Dependency[] dependencies;
+
+    /**
+     * Flags to apply when recompiling classes
+     */
+    @Parameter(property = "bridge.flags")
+    private String[] flags;
+
+    /**
+     * The java release to resolve platform classes against (defaults to the release of the running JDK)
+     */
+    @Parameter(property = "bridge.release", defaultValue = "${maven.compiler.release}")
+    private String release;
+
+    /**
+     * The number of threads to resolve and recompile classes with (values less than 1 use one thread per processor)
+     */
+    @Parameter(property = "bridge.threads", defaultValue = "1")
+    private int threads;
+
+    /**
+     * The directory to cache dependency class hierarchies in
+     */
+    @Parameter(property = "bridge.cache", defaultValue = "${settings.localRepository}/.cache/bridge")
+    private File cache;
+
+    /**
+     * The file to write a JSON build performance report to
+     */
+    @Parameter(property = "bridge.report", defaultValue = "${project.build.directory}/bridge-reports/${mojoExecution.executionId}.json")
+    private File report;
+
+    @Override
+    public final void execute() throws MojoExecutionException, MojoFailureException {
+        final Log log = getLog();
+        check: {
+            String v1, v2 = project.getProperties().getProperty("bridge.version");
+            for (Artifact artifact : project.getArtifacts()) {
+                if (!"net.ME1312.ASM".equalsIgnoreCase(artifact.getGroupId()) ||
+                        !"bridge".equalsIgnoreCase(artifact.getArtifactId()) ||
+                        !"jar".equalsIgnoreCase(artifact.getType()) ||
+                        artifact.getClassifier() != null) continue;
+                if (v2 != null) {
+                    if (!v2.equalsIgnoreCase(v1 = artifact.getVersion())) {
+                        log.warn("The api version differs from ${bridge.version}: " + v1 + " != " + v2);
+                    }
+                    break;
+                }
+                if (((v1 = execution.getVersion()) != (v2 = artifact.getVersion())) && (v1 == null || !v1.equalsIgnoreCase(v2))) {
+                    log.warn("The plugin version differs from the api version: " + v1 + " != " + v2);
+                }
+                break check;
+            }
+            if (v2 != null && !v2.equalsIgnoreCase(v1 = execution.getVersion())) {
+                log.warn("The plugin version differs from ${bridge.version}: " + v1 + " != " + v2);
+            }
+        }
+        int flags = 0;
+        boolean lazy = true;
+        File cache = this.cache;
+        for (String flag : this.flags) {
+            switch (flag.replaceAll("[\\s\\-]", "_").toUpperCase(Locale.ROOT)) {
+                case "NO_CACHE":
+                case "NO_HIERARCHY_CACHE":
+                    cache = null;
+                    break;
+                case "FORCE_COMPILE":
+                case "FORCE_RECOMPILE":
+                    lazy = false;
+                    break;
+                case "NO_COMPILE":
+                case "NO_RECOMPILE":
+                case "SKIP_COMPILE":
+                case "SKIP_RECOMPILE":
+                    log.warn("Skipped previously defined recompilation goal");
+                    return;
+                default:
+                    final int value;
+                    if ((value = BridgeCompiler.flag(flag)) == 0) {
+                        log.warn("Unknown recompilation flag: " + flag);
+                    }
+                    flags |= value;
+            }
+        }
+        int release = 0;
+        if (this.release != null && !this.release.isEmpty() && !this.release.startsWith("${")) try {
+            release = Integer.parseInt(this.release);
+        } catch (NumberFormatException e) {
+            log.warn("Unknown java release: " + this.release);
+        }
+        final BuildEvents.Build event = new BuildEvents.Build();
+        event.begin();
+        try (BridgeCompiler compiler = new BridgeCompiler(flags, release, threads, cache, new BridgeCompiler.Logger() {
+            @Override
+            public boolean isDebugEnabled() {
+                return log.isDebugEnabled();
+            }
+
+            @Override
+            public void debug(String message) {
+                log.debug(message);
+            }
+
+            @Override
+            public void info(String message) {
+                log.info(message);
+            }
+
+            @Override
+            public void warn(String message) {
+                log.warn(message);
+            }
+        })) {
+            execute(compiler, lazy);
+            if (report != null) compiler.report(report);
+        } catch (Throwable e) {
+            throw new MojoExecutionException(e);
+        } finally {
+            if (event.shouldCommit()) {
+                event.goal = execution.getGoal();
+                event.execution = execution.getExecutionId();
+                event.project = project.getId();
+                event.commit();
+            }
+        }
+    }
+
+    abstract void execute(BridgeCompiler compiler, boolean lazy) throws Throwable;
+
+    final Set<Artifact> artifacts() throws Exception {
+        final Set<Artifact> artifacts;
+        final Dependency[] dependencies;
+        final int length;
+        if ((dependencies = this.dependencies) == null || (length = dependencies.length) == 0) {
+            artifacts = project.getArtifacts();
+        } else {
+            artifacts = new LinkedHashSet<>(project.getArtifacts());
+            for (int i = 0; i != length;) {
+                for (final Iterator<ArtifactResult> it = system.resolveDependencies(
+                        session.getRepositorySession(),
+                        new DependencyRequest(
+                                new CollectRequest(
+                                        RepositoryUtils.toDependency(dependencies[i++], RepositoryUtils.newArtifactTypeRegistry(manager)),
+                                        project.getRemoteProjectRepositories()
+                                ),
+                                null
+                        )
+                ).getArtifactResults().iterator(); it.hasNext();) {
+                    final Artifact artifact;
+                    if (artifacts.add(artifact = RepositoryUtils.toArtifact(it.next().getArtifact()))) {
+                        artifact.setScope("provided");
+                    }
+                }
+            }
+        }
+        return artifacts;
+    }
+
+    final List<File> classpath(Set<Artifact> artifacts) {
+        final Log log = getLog();
+        final List<File> classpath = new ArrayList<>();
+        for (Artifact artifact : artifacts) {
+            File file = artifact.getFile();
+            if (file.getName().endsWith(".jar") && file.exists()) {
+                log.info("  + " + file + " (" + artifact.getScope() + ')');
+                classpath.add(file);
+                continue;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug(" - " + file + " (" + artifact.getScope() + ')');
+            }
+        }
+        return classpath;
+    }
+}
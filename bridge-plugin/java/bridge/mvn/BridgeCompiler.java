@@ -0,0 +1,585 @@
+package bridge.mvn;
+
+import bridge.asm.ArrayType;
+import bridge.asm.ClassHeader;
+import bridge.asm.ConstantFilter;
+import bridge.asm.HierarchyCache;
+import bridge.asm.KnownType;
+import bridge.asm.Platform;
+import bridge.asm.TypeMap;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static bridge.mvn.ForkVisitor.*;
+
+/**
+ * Recompiles bridge features in class files independently of any build tool
+ */
+public final class BridgeCompiler implements Closeable {
+    private static final int SCAN_RANGE = 1024;
+    private static final ConstantFilter API = new ConstantFilter(
+            "bridge/Invocation", "bridge/Invocation$Executor", "bridge/Invocation$Accessor",
+            "bridge/Label", "bridge/Jump", "bridge/Unchecked",
+            "Lbridge/Bridge;", "Lbridge/Bridges;", "Lbridge/Adopt;", "Lbridge/Synthetic;"
+    );
+    private static final ConstantFilter FORKS = new ConstantFilter("LANGUAGE_LEVEL");
+    public final TypeMap types;
+    public final int flags;
+    private final Set<String> unique = new HashSet<>();
+    final BuildReport report = new BuildReport();
+    private final ExecutorService pool;
+    private final Logger log;
+    private final File cache;
+    private boolean adopted;
+    private int options;
+
+    public interface Logger {
+        boolean isDebugEnabled();
+        void debug(String message);
+        void info(String message);
+        void warn(String message);
+    }
+
+    public BridgeCompiler(int flags, int threads, File cache, Logger log) {
+        this(flags, 0, threads, cache, log);
+    }
+
+    public BridgeCompiler(int flags, int release, int threads, File cache, Logger log) {
+        final Platform platform = Platform.of(release);
+        this.types = new TypeMap(platform, 0);
+        if (threads < 1) threads = Runtime.getRuntime().availableProcessors();
+        this.pool = (threads > 1)? Executors.newFixedThreadPool(threads) : null;
+        this.options = this.flags = flags;
+        this.cache = cache;
+        this.log = Objects.requireNonNull(log);
+        if ((release > 0 && release != platform.release) || platform.fallback()) {
+            log.warn("The Java " + release + " class hierarchy is not available, so Java " + Platform.RUNTIME + " will be used instead");
+        }
+        if (cache != null) snapshot(platform);
+    }
+
+    private void snapshot(Platform platform) {
+        final BuildEvents.Classpath event = new BuildEvents.Classpath();
+        final long time = System.nanoTime();
+        event.begin();
+        try {
+            final boolean cached = platform.snapshot(cache);
+            if (platform.size() == 0) return;
+            final BuildReport.Entry entry = report.entry(platform.source(), "platform");
+            entry.time.add(System.nanoTime() - time);
+            entry.types = platform.size();
+            entry.cached = cached;
+            commit(event, platform.source(), "platform", entry.types);
+        } catch (IOException e) {
+            log.warn("Could not snapshot the Java " + platform.release + " class hierarchy: " + e);
+        }
+    }
+
+    public static int flag(String name) {
+        switch (name.replaceAll("[\\s\\-]", "_").toUpperCase(Locale.ROOT)) {
+            case "NO_DEBUG":
+                return NO_NAMED_PARAMS | NO_NAMED_LOCALS | NO_SOURCE_EXT | NO_SOURCE_NAMES | NO_MODULE_VERSIONS | NO_LINE_NUMBERS;
+            case "NO_NAMED_PARAMETERS":
+            case "NO_NAMED_PARAMS":
+                return NO_NAMED_PARAMS;
+            case "NO_NAMED_LOCALS":
+                return NO_NAMED_LOCALS;
+            case "NO_SOURCE":
+                return NO_SOURCE_EXT | NO_SOURCE_NAMES;
+            case "NO_SOURCE_NAMES":
+            case "NO_SOURCE_NAME":
+                return NO_SOURCE_NAMES;
+            case "NO_SOURCE_EXT":
+            case "NO_SOURCE_EXTENSION":
+            case "NO_SOURCE_EXTENSIONS":
+                return NO_SOURCE_EXT;
+            case "NO_MODULE_VERSION":
+            case "NO_MODULE_VERSIONS":
+                return NO_MODULE_VERSIONS;
+            case "NO_LINE_NUMBERS":
+                return NO_LINE_NUMBERS;
+            case "KEEP_FRAMES":
+            case "PRESERVE_FRAMES":
+                return KEEP_FRAMES;
+            default:
+                return 0;
+        }
+    }
+
+    public List<Result> compile(Collection<File> roots, Collection<File> classpath) throws IOException {
+        log.info("Resolving class hierarchy...");
+        long scantime = System.nanoTime();
+        final List<String> paths = new ArrayList<>();
+        final List<byte[]> sources = new ArrayList<>();
+        for (File root : roots) {
+            if (!root.isDirectory()) continue;
+            for (String path : classes(root)) {
+                final byte[] data = read(new File(root, path));
+                if (add(path, data) != null) {
+                    if (log.isDebugEnabled()) log.debug(" + " + path);
+                    paths.add(path);
+                    sources.add(data);
+                }
+            }
+        }
+        final String resolution = resolve(classpath);
+        scantime = System.nanoTime() - scantime;
+        log.info("");
+        log.info("Building bridges...");
+        long comptime = System.nanoTime();
+        final List<Future<Result>> futures = new ArrayList<>(paths.size());
+        for (int i = 0; i != paths.size(); ++i) {
+            final String path = paths.get(i);
+            final byte[] data = sources.get(i);
+            futures.add(submit(() -> transform(path, data)));
+        }
+        final List<Result> results = new ArrayList<>(paths.size());
+        for (Future<Result> future : futures) {
+            final Result result = join(future);
+            if (result.message != null) log.info(result.message);
+            results.add(result);
+        }
+        comptime = System.nanoTime() - comptime;
+        log.info("");
+        log.info("Hierarchy resolved in " + humanize(scantime) + resolution);
+        log.info("Recompiled in " + humanize(comptime));
+        return results;
+    }
+
+    public byte[] read(File file) throws IOException {
+        final long time = System.nanoTime();
+        try {
+            return Files.readAllBytes(file.toPath());
+        } finally {
+            report.read.add(System.nanoTime() - time);
+        }
+    }
+
+    public KnownType add(String path, byte[] data) {
+        if (!unique.add(path)) return null;
+        final long time = System.nanoTime();
+        final ClassReader reader = new ClassReader(data);
+        reader.accept(new BridgeScanner(types), ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES | ClassReader.SKIP_DEBUG);
+        final KnownType type = types.loadClass(reader.getClassName());
+        if (adopted(type)) adopted = true;
+        report.scan.add(System.nanoTime() - time);
+        return type;
+    }
+
+    static boolean adopted(KnownType type) {
+        final Object info;
+        return (info = type.data()) instanceof BridgeData && ((BridgeData) info).adopted;
+    }
+
+    void adopt() {
+        adopted = true;
+    }
+
+    public String resolve(Collection<File> classpath) throws IOException {
+        if (adopted && (options & KEEP_FRAMES) != 0) {
+            log.warn("Recomputing all stack map frames because the class hierarchy has been adopted");
+            options &= ~KEEP_FRAMES;
+        }
+        int hits = 0, misses = 0;
+        final long time = System.nanoTime();
+        final List<ZipFile> jars = new ArrayList<>();
+        try {
+            final List<Scan> hierarchies = new ArrayList<>();
+            for (File file : classpath) {
+                if (!file.exists()) {
+                    continue;
+                } else if (file.isDirectory()) {
+                    final Scan hierarchy = new Scan(null, report.entry(file, "directory"));
+                    hierarchies.add(hierarchy);
+                    for (String path : classes(file)) {
+                        if (unique.add(path)) hierarchy.entries.add(path);
+                    }
+                    for (int i = 0, size = hierarchy.entries.size(); i < size; i += SCAN_RANGE) {
+                        final List<String> range = hierarchy.entries.subList(i, Math.min(i + SCAN_RANGE, size));
+                        hierarchy.ranges.add(submit(() -> scan(file, range, hierarchy.report)));
+                    }
+                    continue;
+                }
+
+                if (file.getName().endsWith(".hierarchy")) {
+                    final Scan hierarchy = new Scan(null, report.entry(file, "snapshot"));
+                    hierarchies.add(hierarchy);
+                    final BuildEvents.Classpath event = new BuildEvents.Classpath();
+                    final long start = System.nanoTime();
+                    event.begin();
+                    if (!HierarchyCache.read(file, hierarchy.entries, hierarchy.headers)) throw new IOException("Invalid hierarchy snapshot: " + file);
+                    hierarchy.report.time.add(System.nanoTime() - start);
+                    commit(event, file, "snapshot", hierarchy.entries.size());
+                    claim(hierarchy);
+                    continue;
+                }
+
+                final Scan hierarchy = new Scan((cache == null)? null : new HierarchyCache(cache, file), report.entry(file, "jar"));
+                hierarchies.add(hierarchy);
+                if (hierarchy.cache != null) {
+                    final BuildEvents.Classpath event = new BuildEvents.Classpath();
+                    final long start = System.nanoTime();
+                    event.begin();
+                    final boolean cached = hierarchy.cache.read(hierarchy.entries, hierarchy.headers);
+                    hierarchy.report.time.add(System.nanoTime() - start);
+                    if (cached) {
+                        commit(event, hierarchy.cache.file, "cache", hierarchy.entries.size());
+                        if (log.isDebugEnabled()) log.debug("    cache hit: " + hierarchy.cache.file);
+                        claim(hierarchy);
+                        ++hits;
+                        continue;
+                    }
+                    hierarchy.claimed = new BitSet();
+                    if (log.isDebugEnabled()) log.debug("    cache miss: " + hierarchy.cache.file);
+                    ++misses;
+                }
+
+                final ZipFile jar = new ZipFile(file);
+                final List<ZipEntry> entries = new ArrayList<>();
+                jars.add(jar);
+                for (Enumeration<? extends ZipEntry> it = jar.entries(); it.hasMoreElements();) {
+                    final ZipEntry entry;
+                    final String name;
+                    if (!(name = (entry = it.nextElement()).getName()).endsWith(".class") || entry.isDirectory()) continue;
+                    if (hierarchy.claimed != null) {
+                        if (unique.add(name)) hierarchy.claimed.set(entries.size());
+                    } else if (!unique.add(name)) {
+                        continue;
+                    }
+                    hierarchy.entries.add(name);
+                    entries.add(entry);
+                }
+                for (int i = 0, size = entries.size(); i < size; i += SCAN_RANGE) {
+                    final List<ZipEntry> range = entries.subList(i, Math.min(i + SCAN_RANGE, size));
+                    hierarchy.ranges.add(submit(() -> scan(jar, range, hierarchy.report)));
+                }
+            }
+
+            for (int i = 0, size = hierarchies.size(); i != size; ++i) {
+                final Scan hierarchy = hierarchies.get(i);
+                for (Future<ClassHeader[]> range : hierarchy.ranges) {
+                    hierarchy.headers.addAll(Arrays.asList(join(range)));
+                }
+                if (hierarchy.claimed == null) {
+                    for (ClassHeader header : hierarchy.headers) header.define(types);
+                    hierarchy.report.types = hierarchy.headers.size();
+                } else for (int k = hierarchy.claimed.nextSetBit(0); k >= 0; k = hierarchy.claimed.nextSetBit(k + 1)) {
+                    hierarchy.headers.get(k).define(types);
+                    ++hierarchy.report.types;
+                }
+                hierarchy.report.cached = hierarchy.cached;
+                if (hierarchy.cache != null && !hierarchy.cached) {
+                    hierarchy.cache.write(hierarchy.entries, hierarchy.headers);
+                }
+                hierarchies.set(i, null);
+            }
+        } finally {
+            for (ZipFile jar : jars) jar.close();
+            report.resolve += System.nanoTime() - time;
+        }
+        return (cache == null)? "" : " (cache " + hits + " hit" + ((hits == 1)?"":"s") + ", " + misses + " miss" + ((misses == 1)?"":"es") + ')';
+    }
+
+    private void claim(Scan hierarchy) {
+        hierarchy.claimed = new BitSet();
+        for (int i = 0, size = hierarchy.entries.size(); i != size; ++i) {
+            if (unique.add(hierarchy.entries.get(i))) hierarchy.claimed.set(i);
+        }
+        hierarchy.cached = true;
+    }
+
+    private static final class Scan {
+        final HierarchyCache cache;
+        final BuildReport.Entry report;
+        final List<String> entries = new ArrayList<>();
+        final List<ClassHeader> headers = new ArrayList<>();
+        final List<Future<ClassHeader[]>> ranges = new ArrayList<>();
+        BitSet claimed;
+        boolean cached;
+
+        Scan(HierarchyCache cache, BuildReport.Entry report) {
+            this.cache = cache;
+            this.report = report;
+        }
+    }
+
+    private static ClassHeader[] scan(ZipFile jar, List<ZipEntry> range, BuildReport.Entry report) throws IOException {
+        final BuildEvents.Classpath event = new BuildEvents.Classpath();
+        final long time = System.nanoTime();
+        event.begin();
+        final ClassHeader[] headers = new ClassHeader[range.size()];
+        for (int i = 0; i != headers.length; ++i) {
+            try (InputStream is = jar.getInputStream(range.get(i))) {
+                headers[i] = ClassHeader.read(is);
+            }
+        }
+        report.time.add(System.nanoTime() - time);
+        if (event.shouldCommit()) {
+            long bytes = 0;
+            for (ZipEntry entry : range) bytes += Math.max(entry.getSize(), 0);
+            event.path = jar.getName();
+            event.kind = "jar";
+            event.classes = headers.length;
+            event.bytes = bytes;
+            event.commit();
+        }
+        return headers;
+    }
+
+    private static ClassHeader[] scan(File directory, List<String> range, BuildReport.Entry report) throws IOException {
+        final BuildEvents.Classpath event = new BuildEvents.Classpath();
+        final long time = System.nanoTime();
+        event.begin();
+        final ClassHeader[] headers = new ClassHeader[range.size()];
+        for (int i = 0; i != headers.length; ++i) {
+            try (InputStream is = Files.newInputStream(new File(directory, range.get(i)).toPath())) {
+                headers[i] = ClassHeader.read(is);
+            }
+        }
+        report.time.add(System.nanoTime() - time);
+        if (event.shouldCommit()) {
+            long bytes = 0;
+            for (String path : range) bytes += new File(directory, path).length();
+            event.path = directory.getPath();
+            event.kind = "directory";
+            event.classes = headers.length;
+            event.bytes = bytes;
+            event.commit();
+        }
+        return headers;
+    }
+
+    private static void commit(BuildEvents.Classpath event, File file, String kind, int classes) {
+        if (event.shouldCommit()) {
+            event.path = file.getPath();
+            event.kind = kind;
+            event.classes = classes;
+            event.bytes = file.length();
+            event.commit();
+        }
+    }
+
+    private static List<String> classes(File root) throws IOException {
+        final Path base = root.toPath();
+        try (Stream<Path> files = Files.walk(base)) {
+            final List<String> paths = new ArrayList<>();
+            files.filter(path -> path.toString().endsWith(".class") && Files.isRegularFile(path)).sorted().forEachOrdered(path -> {
+                final String name = base.relativize(path).toString().replace(File.separatorChar, '/');
+                if (!name.startsWith("META-INF/versions/")) paths.add(name);
+            });
+            return paths;
+        }
+    }
+
+    public <T> Future<T> submit(Callable<T> task) {
+        if (pool != null) return pool.submit(task);
+        final FutureTask<T> future = new FutureTask<>(task);
+        future.run();
+        return future;
+    }
+
+    public static <T> T join(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    public static final class Result {
+        public final String path, name, message;
+        public final String[] depends;
+        public final byte[] data;
+        public final int[] forks;
+        public final byte[][] versions;
+
+        private Result(String path, String name, String message, String[] depends, byte[] data, int[] forks, byte[][] versions) {
+            this.path = path;
+            this.name = name;
+            this.message = message;
+            this.depends = depends;
+            this.data = data;
+            this.forks = forks;
+            this.versions = versions;
+        }
+
+        public String fork(int index) {
+            return "META-INF/versions/" + forks[index] + '/' + name + ".class";
+        }
+    }
+
+    public Result transform(String path, byte[] data) {
+        final int flags = this.options;
+        long time = System.nanoTime();
+        // Once the hierarchy has been adopted, even a class that never mentions the API may have frames that no longer verify
+        if ((flags & ~KEEP_FRAMES) == 0 && !adopted && !API.matches(data)) {
+            report.classes.add(new BuildReport.Unit(path, data.length, -1, new int[0], new int[0], System.nanoTime() - time, 0));
+            return new Result(path, new ClassReader(data).getClassName(), null, new String[0], null, new int[0], new byte[0][]);
+        }
+        ClassNode code;
+        BridgeVisitor visitor;
+        String msg = null;
+        final Set<String> depends = new HashSet<>();
+        final TypeMap types = this.types.view(type -> {
+            if (type instanceof ArrayType) type = ((ArrayType) type).root;
+            if (!type.isPrimitive()) depends.add(type.type.getDescriptor());
+        });
+        final ClassReader reader = new ClassReader(data);
+        final BuildEvents.Transform event = (BuildEvents.TRANSFORM.isEnabled())? new BuildEvents.Transform() : null;
+        if (event != null) event.begin();
+        FrameWriter writer = null;
+        if ((flags & KEEP_FRAMES) != 0 || FORKS.matches(data)) {
+            reader.accept(visitor = new BridgeVisitor(code = new ClassNode(), types), ClassReader.EXPAND_FRAMES);
+        } else {
+            code = null;
+            visitor = new BridgeVisitor(null, types);
+            visitor.setDelegate(new ForkVisitor(writer = new FrameWriter(types, null), visitor, reader.readInt(4) - 44, flags));
+            reader.accept(visitor, ClassReader.EXPAND_FRAMES);
+        }
+        final long transform = System.nanoTime() - time;
+        if (event != null && event.shouldCommit()) {
+            event.path = path;
+            event.type = visitor.name;
+            event.bytes = data.length;
+            event.commit();
+        }
+        time = System.nanoTime();
+        int i;
+        if (visitor.bridges != 0 || visitor.invocations != 0 || visitor.adjustments != 0 || visitor.removals != 0 || visitor.forks.size() != 1) {
+            StringBuilder str = new StringBuilder().append(" -> ").append(
+                    ((i = path.lastIndexOf(visitor.name)) >= 0 && path.indexOf('/', i + visitor.name.length()) < 0)?
+                            path.substring(0, i) + visitor.name.replace('/', '.') : path
+            );
+            if ((i = visitor.forks.size()) != 1) str.append("  +").append(--i).append(" fork").append((i == 1)?"":"s");
+            if ((i = visitor.bridges) != 0) str.append("  +").append(i).append(" bridge").append((i == 1)?"":"s");
+            if ((i = visitor.invocations) != 0) str.append("  +").append(i).append(" invocation").append((i == 1)?"":"s");
+            if ((i = visitor.adjustments) != 0) str.append("  +").append(i).append(" adjustment").append((i == 1)?"":"s");
+            if ((i = visitor.removals) != 0) str.append("  +").append(i).append(" removal").append((i == 1)?"":"s");
+            msg = str.toString();
+        }
+        byte[] output = null;
+        int[] forks = new int[visitor.forks.size()];
+        byte[][] versions = new byte[forks.length][];
+        int length = 0;
+        for (Map.Entry<Integer, Boolean> e : visitor.forks.entrySet()) {
+            i = e.getKey();
+            final BuildEvents.Fork fork = (BuildEvents.FORK.isEnabled())? new BuildEvents.Fork() : null;
+            if (fork != null) fork.begin();
+            if (code != null) code.accept(new ForkVisitor(
+                    writer = new FrameWriter(types, ((flags & KEEP_FRAMES) != 0 && visitor.adopt == null)? visitor.dirty : null),
+                    visitor,
+                    i,
+                    flags
+            ));
+            final byte[] bytes = writer.toByteArray();
+            if (e.getValue()) {
+                versions[length] = bytes;
+                forks[length++] = i;
+            } else {
+                output = bytes;
+            }
+            if (fork != null && fork.shouldCommit()) {
+                fork.type = visitor.name;
+                fork.version = i;
+                fork.bytes = bytes.length;
+                fork.commit();
+            }
+        }
+        final long emit = System.nanoTime() - time;
+        final int[] sizes = new int[length];
+        for (int k = 0; k != length; ++k) sizes[k] = versions[k].length;
+        report.transform.add(transform);
+        report.emit.add(emit);
+        report.classes.add(new BuildReport.Unit(path, data.length, (output == null)? -1 : output.length, Arrays.copyOf(forks, length), sizes, transform, emit));
+        return new Result(
+                path,
+                visitor.name,
+                msg,
+                depends.toArray(new String[0]),
+                output,
+                Arrays.copyOf(forks, length),
+                Arrays.copyOf(versions, length)
+        );
+    }
+
+    public boolean write(File root, Result result) throws IOException {
+        boolean modified = false;
+        if (result.data != null && write(new File(root, result.path), result.data, null)) modified = true;
+        for (int i = 0; i != result.forks.length; ++i) {
+            if (write(new File(root, result.fork(i)), result.versions[i], null)) modified = true;
+        }
+        return modified;
+    }
+
+    public boolean write(File file, byte[] data, byte[] existing) throws IOException {
+        final long time = System.nanoTime();
+        final Path path = file.toPath();
+        try {
+            if (existing == null && file.length() == data.length && file.isFile()) existing = Files.readAllBytes(path);
+            if (existing != null && Arrays.equals(existing, data)) {
+                if (log.isDebugEnabled()) log.debug("== " + file);
+                return false;
+            }
+
+            final File directory = file.getAbsoluteFile().getParentFile();
+            directory.mkdirs();
+            final Path temp = Files.createTempFile(directory.toPath(), file.getName(), ".tmp");
+            try {
+                Files.write(temp, data);
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            return true;
+        } finally {
+            report.write.add(System.nanoTime() - time);
+        }
+    }
+
+    public void report(File file) throws IOException {
+        report.write(file, types, flags);
+    }
+
+    public static String humanize(long timing) {
+        if (timing < 1000000L) {
+            return timing + "ns";
+        } else if (timing < 1000000000L) {
+            return String.format("%.2fms", timing / 1000000D);
+        } else if (timing < 60000000000L) {
+            return String.format("%.4fs", timing / 1000000000D);
+        } else if (timing < 3600000000000L) {
+            return String.format("%.4fm", timing / 60000000000D);
+        } else if (timing < 86400000000000L) {
+            return String.format("%.4fh", timing / 3600000000000D);
+        } else if (timing < 604800000000000L) {
+            return String.format("%.5fd", timing / 86400000000000D);
+        } else {
+            return String.format("%.5fw", timing / 604800000000000D);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) pool.shutdownNow();
+    }
+}
@@ -1,38 +1,22 @@
 package bridge.mvn;
 
-import bridge.asm.HierarchicalWriter;
-import bridge.asm.HierarchyScanner;
+import bridge.asm.KnownType;
 import bridge.asm.TypeMap;
-import org.apache.maven.RepositoryUtils;
 import org.apache.maven.artifact.Artifact;
-import org.apache.maven.artifact.handler.manager.ArtifactHandlerManager;
-import org.apache.maven.execution.MavenSession;
-import org.apache.maven.plugin.AbstractMojo;
-import org.apache.maven.plugin.MojoExecution;
-import org.apache.maven.plugin.MojoExecutionException;
-import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.*;
-import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.util.DirectoryScanner;
-import org.eclipse.aether.RepositorySystem;
-import org.eclipse.aether.collection.CollectRequest;
-import org.eclipse.aether.resolution.ArtifactResult;
-import org.eclipse.aether.resolution.DependencyRequest;
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassWriter;
-import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.Type;
 
 import java.io.File;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.IOException;
 import java.nio.file.Files;
+import java.security.MessageDigest;
 import java.time.Instant;
 import java.util.*;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.concurrent.Future;
 
-import static bridge.mvn.ForkVisitor.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * Compiles bridge features in application classes
@@ -44,44 +28,7 @@ import static bridge.mvn.ForkVisitor.*;
         requiresDependencyCollection = ResolutionScope.COMPILE_PLUS_RUNTIME,
         threadSafe = true
 )
-public final class BridgeMojo extends AbstractMojo {
-
-    /**
-     * The maven repository system
-     */
-    @Component
-    private RepositorySystem system;
-
-    /**
-     * The maven artifact manager
-     */
-    @Component
-    private ArtifactHandlerManager manager;
-
-    /**
-     * The maven session
-     */
-    @Component
-    private MavenSession session;
-
-    /**
-     * The maven project
-     */
-    @Component
-    private MavenProject project;
-
-    /**
-     * The maven plugin execution
-     */
-    @Component
-    private MojoExecution execution;
-
-    /**
-     * Additional dependencies to add to the class hierarchy
-     */
-    @Parameter(property = "bridge.dependencies")
-    private Dependency[] dependencies;
-
+public final class BridgeMojo extends AbstractBridgeMojo {
     /**
      * The top level input/output directory for classes
      */
@@ -101,240 +48,239 @@ public final class BridgeMojo extends AbstractMojo {
     private String[] excludes;
 
     /**
-     * Flags to apply when recompiling classes
+     * The directory to store incremental build state in
      */
-    @Parameter(property = "bridge.flags")
-    private String[] flags;
+    @Parameter(property = "bridge.state", defaultValue = "${project.build.directory}/bridge-state")
+    private File state;
 
     @Override
-    public void execute() throws MojoExecutionException, MojoFailureException {
-        Log log = getLog();
-        check: {
-            String v1, v2 = project.getProperties().getProperty("bridge.version");
-            for (Artifact artifact : project.getArtifacts()) {
-                if (!"net.ME1312.ASM".equalsIgnoreCase(artifact.getGroupId()) ||
-                        !"bridge".equalsIgnoreCase(artifact.getArtifactId()) ||
-                        !"jar".equalsIgnoreCase(artifact.getType()) ||
-                        artifact.getClassifier() != null) continue;
-                if (v2 != null) {
-                    if (!v2.equalsIgnoreCase(v1 = artifact.getVersion())) {
-                        log.warn("The api version differs from ${bridge.version}: " + v1 + " != " + v2);
-                    }
-                    break;
-                }
-                if (((v1 = execution.getVersion()) != (v2 = artifact.getVersion())) && (v1 == null || !v1.equalsIgnoreCase(v2))) {
-                    log.warn("The plugin version differs from the api version: " + v1 + " != " + v2);
-                }
-                break check;
+    void execute(BridgeCompiler compiler, boolean lazy) throws Throwable {
+        final Log log = getLog();
+        final int flags = compiler.flags;
+        int length;
+        DirectoryScanner scan = new DirectoryScanner();
+        String[] includes = new String[(length = this.includes.length) + 1];
+        System.arraycopy(this.includes, 0, includes, 1, length);
+        includes[0] = "**/*.class";
+        scan.setBasedir(classpath);
+        scan.setIncludes(includes);
+        scan.scan();
+        length = (includes = scan.getIncludedFiles()).length;
+        final String root = classpath.getAbsolutePath();
+        final File manifest = (state == null)? null : new File(state, classpath.getName() + '.' + String.format("%08x", root.hashCode()) + ".state");
+        final BuildState previous = (manifest == null)? null : BuildState.read(manifest, execution.getVersion(), root, flags);
+        final BuildState current = new BuildState(execution.getVersion(), root, flags);
+        final long timestamp = classpath.lastModified();
+        if ((lazy && previous == null) || length == 0) for (int i = 0;;) {
+            if (i == length) {
+                log.info("Nothing to recompile");
+                return;
             }
-            if (v2 != null && !v2.equalsIgnoreCase(v1 = execution.getVersion())) {
-                log.warn("The plugin version differs from ${bridge.version}: " + v1 + " != " + v2);
+            final File file;
+            if ((file = new File(classpath, includes[i++])).exists() && file.lastModified() >= timestamp) {
+                break;
             }
         }
-        int flags = 0;
-        boolean lazy = true;
-        for (String flag : this.flags) {
-            switch (flag.replaceAll("[\\s\\-]", "_").toUpperCase(Locale.ROOT)) {
-                case "NO_DEBUG":
-                    flags |= NO_NAMED_PARAMS | NO_NAMED_LOCALS | NO_SOURCE_EXT | NO_SOURCE_NAMES | NO_MODULE_VERSIONS | NO_LINE_NUMBERS;
-                    break;
-                case "NO_NAMED_PARAMETERS":
-                case "NO_NAMED_PARAMS":
-                    flags |= NO_NAMED_PARAMS;
-                    break;
-                case "NO_NAMED_LOCALS":
-                    flags |= NO_NAMED_LOCALS;
-                    break;
-                case "NO_SOURCE":
-                    flags |= NO_SOURCE_EXT | NO_SOURCE_NAMES;
-                    break;
-                case "NO_SOURCE_NAMES":
-                case "NO_SOURCE_NAME":
-                    flags |= NO_SOURCE_NAMES;
-                    break;
-                case "NO_SOURCE_EXT":
-                case "NO_SOURCE_EXTENSION":
-                case "NO_SOURCE_EXTENSIONS":
-                    flags |= NO_SOURCE_EXT;
-                    break;
-                case "NO_MODULE_VERSION":
-                case "NO_MODULE_VERSIONS":
-                    flags |= NO_MODULE_VERSIONS;
-                    break;
-                case "NO_LINE_NUMBERS":
-                    flags |= NO_LINE_NUMBERS;
-                    break;
-                case "FORCE_COMPILE":
-                case "FORCE_RECOMPILE":
-                    lazy = false;
-                    break;
-                case "NO_COMPILE":
-                case "NO_RECOMPILE":
-                case "SKIP_COMPILE":
-                case "SKIP_RECOMPILE":
-                    log.warn("Skipped previously defined recompilation goal");
-                    return;
-                default:
-                    log.warn("Unknown recompilation flag: " + flag);
-            }
+
+        final Set<Artifact> artifacts = artifacts();
+        final Set<String> outputs = new HashSet<>();
+        if (previous != null) for (BuildState.Entry entry : previous.classes.values()) {
+            for (int version : entry.forks) outputs.add(entry.fork(version));
         }
-        try {
-            int length;
-            TypeMap types = new TypeMap();
-            Set<String> unique = new HashSet<>();
-            DirectoryScanner scan = new DirectoryScanner();
-            String[] includes = new String[(length = this.includes.length) + 1];
-            System.arraycopy(this.includes, 0, includes, 1, length);
-            includes[0] = "**/*.class";
-            scan.setBasedir(classpath);
-            scan.setIncludes(includes);
-            scan.scan();
-            length = (includes = scan.getIncludedFiles()).length;
-            final long timestamp = classpath.lastModified();
-            if (lazy || length == 0) for (int i = 0;;) {
-                if (i == length) {
-                    log.info("Nothing to recompile");
-                    return;
-                }
-                final File file;
-                if ((file = new File(classpath, includes[i++])).exists() && file.lastModified() >= timestamp) {
-                    break;
+        final List<String> targets = new ArrayList<>();
+        scan = new DirectoryScanner();
+        scan.setBasedir(classpath);
+        scan.setIncludes(this.includes);
+        scan.setExcludes(this.excludes);
+        scan.scan();
+        for (String path : scan.getIncludedFiles()) {
+            if (!outputs.contains(path = path.replace(File.separatorChar, '/'))) targets.add(path);
+        }
+
+        log.info("Resolving class hierarchy...");
+        long scantime = System.nanoTime();
+        final Map<String, byte[]> classes = new HashMap<>();
+        final Map<String, byte[]> hashes = new HashMap<>();
+        final Map<String, byte[]> sources = new HashMap<>();
+        final Map<String, byte[]> originals = new HashMap<>();
+        final Set<String> adoptions = new HashSet<>();
+        final MessageDigest inputs = BuildState.digest();
+        for (String path : includes) {
+            File file = new File(classpath, path);
+            if (file.exists() && !outputs.contains(path = path.replace(File.separatorChar, '/'))) {
+                if (log.isDebugEnabled()) log.debug(" + " + file);
+                final byte[] data = compiler.read(file);
+                final byte[] hash = BuildState.hash(data);
+                final BuildState.Entry entry = (previous == null)? null : previous.classes.get(path);
+                final boolean reused = entry != null && Arrays.equals(hash, entry.output);
+                final byte[] source = (reused)? entry.source : hash;
+                final KnownType type = compiler.add(path, data);
+                if (BridgeCompiler.adopted(type)) {
+                    adoptions.add(path);
+                } else if (reused && entry.adopted) {
+                    // The annotation that adopted this class was consumed when it was bridged, so only the manifest remembers it
+                    compiler.adopt();
+                    adoptions.add(path);
                 }
+                classes.put(path, data);
+                hashes.put(path, hash);
+                sources.put(path, source);
+                originals.put(type.type.getInternalName(), source);
+                inputs.update(path.getBytes(UTF_8));
+                inputs.update(source);
+                continue;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug(" - " + file);
+            }
+        }
+        for (Artifact artifact : artifacts) {
+            final File file = artifact.getFile();
+            inputs.update((file.getAbsolutePath() + '\0' + file.length() + '\0' + file.lastModified() + '\0').getBytes(UTF_8));
+        }
+        current.inputs = inputs.digest();
+        if (previous != null && previous.adopted() != !adoptions.isEmpty()) {
+            // Classes that were skipped without an adopted hierarchy kept the frames javac computed, and recorded nothing that they depend on
+            lazy = false;
+        }
+        if (lazy && previous != null && Arrays.equals(previous.inputs, current.inputs) && previous.classes.size() == targets.size()) {
+            int i = 0;
+            for (String path : targets) {
+                if (!unchanged(previous.classes.get(path), hashes.get(path))) break;
+                ++i;
+            }
+            if (i == targets.size()) {
+                log.info("Nothing to recompile");
+                return;
             }
+        }
 
-            final Set<Artifact> artifacts;
-            final Dependency[] dependencies;
-            if ((dependencies = this.dependencies) == null || (length = dependencies.length) == 0) {
-                artifacts = project.getArtifacts();
+        final String resolution = compiler.resolve(classpath(artifacts));
+        scantime = System.nanoTime() - scantime;
+        log.info("");
+        log.info("Building bridges...");
+        long comptime = System.nanoTime();
+        final List<String> paths = new ArrayList<>();
+        boolean modified = false;
+        final Map<KnownType, Long> fingerprints = new HashMap<>();
+        for (String path : targets) {
+            final BuildState.Entry entry;
+            if (lazy && previous != null && unchanged(entry = previous.classes.get(path), hashes.get(path)) && unchanged(entry, previous, compiler.types, fingerprints, originals)) {
+                current.classes.put(path, entry);
             } else {
-                artifacts = new LinkedHashSet<>(project.getArtifacts());
-                for (int i = 0; i != length;) {
-                    for (final Iterator<ArtifactResult> it = system.resolveDependencies(
-                            session.getRepositorySession(),
-                            new DependencyRequest(
-                                    new CollectRequest(
-                                            RepositoryUtils.toDependency(dependencies[i++], RepositoryUtils.newArtifactTypeRegistry(manager)),
-                                            project.getRemoteProjectRepositories()
-                                    ),
-                                    null
-                            )
-                    ).getArtifactResults().iterator(); it.hasNext();) {
-                        final Artifact artifact;
-                        if (artifacts.add(artifact = RepositoryUtils.toArtifact(it.next().getArtifact()))) {
-                            artifact.setScope("provided");
-                        }
-                    }
-                }
+                paths.add(path);
             }
-
-            log.info("Resolving class hierarchy...");
-            long scantime = System.nanoTime();
-            for (String path : includes) {
-                File file = new File(classpath, path);
-                if (file.exists()) {
-                    if (log.isDebugEnabled()) log.debug(" + " + file);
-                    unique.add(path.replace(File.separatorChar, '/'));
-                    try (InputStream fis = Files.newInputStream(file.toPath())) {
-                        new ClassReader(fis).accept(new BridgeScanner(types), ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES | ClassReader.SKIP_DEBUG);
+        }
+        if (previous != null) {
+            final Set<String> remaining = new HashSet<>(targets);
+            for (Map.Entry<String, BuildState.Entry> e : previous.classes.entrySet()) {
+                if (!remaining.contains(e.getKey()) && clean(e.getValue(), null)) modified = true;
+            }
+        }
+        final List<Future<Recompiled>> results = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            results.add(compiler.submit(() -> recompile(compiler, path, classes.get(path), hashes.get(path), sources.get(path), adoptions.contains(path))));
+        }
+        for (int i = 0; i != paths.size(); ++i) {
+            if (log.isDebugEnabled()) log.debug("<- " + paths.get(i));
+            if (recompiled(previous, current, paths.get(i), BridgeCompiler.join(results.get(i)))) modified = true;
+        }
+        if (manifest != null) {
+            for (BuildState.Entry entry : current.classes.values()) {
+                for (String depend : entry.depends) {
+                    if (!current.types.containsKey(depend)) {
+                        current.types.put(depend, BuildState.fingerprint(compiler.types.load(Type.getType(depend)), fingerprints, originals));
                     }
-                    continue;
-                }
-                if (log.isDebugEnabled()) {
-                    log.debug(" - " + file);
                 }
             }
+            current.write(manifest);
+        }
 
-            for (Artifact artifact : artifacts) {
-                File file = artifact.getFile();
-                if (file.getName().endsWith(".jar") && file.exists()) {
-                    log.info("  + " + file + " (" + artifact.getScope() + ')');
-                    try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(file.toPath()))) {
-                        for (ZipEntry entry; (entry = zis.getNextEntry()) != null;) {
-                            if (!entry.getName().endsWith(".class") || !unique.add(entry.getName())) continue;
-                            new ClassReader(zis).accept(new HierarchyScanner(types), ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES | ClassReader.SKIP_DEBUG);
-                        }
-                    }
-                    continue;
-                }
-                if (log.isDebugEnabled()) {
-                    log.debug(" - " + file + " (" + artifact.getScope() + ')');
-                }
+        comptime = System.nanoTime() - comptime;
+        log.info("");
+        log.info("Hierarchy resolved in " + BridgeCompiler.humanize(scantime) + resolution);
+        log.info("Recompiled in " + BridgeCompiler.humanize(comptime) + ((length = targets.size() - paths.size()) == 0? "" :
+                " (" + length + " class" + ((length == 1)?"":"es") + " up to date)"));
+        if (modified || manifest == null) classpath.setLastModified((Instant.now().getEpochSecond() * 1000) + 1000);
+    }
+
+    private static final class Recompiled {
+        final String message;
+        final BuildState.Entry entry;
+        final boolean modified;
+
+        Recompiled(String message, BuildState.Entry entry, boolean modified) {
+            this.message = message;
+            this.entry = entry;
+            this.modified = modified;
+        }
+    }
+
+    private boolean unchanged(BuildState.Entry entry, byte[] hash) {
+        if (entry == null || hash == null || !Arrays.equals(hash, entry.output)) return false;
+        for (int version : entry.forks) {
+            if (!new File(classpath, entry.fork(version)).isFile()) return false;
+        }
+        return true;
+    }
+
+    private static boolean unchanged(BuildState.Entry entry, BuildState state, TypeMap types, Map<KnownType, Long> fingerprints, Map<String, byte[]> sources) {
+        for (String depend : entry.depends) {
+            final Long fingerprint;
+            if ((fingerprint = state.types.get(depend)) == null || fingerprint != BuildState.fingerprint(types.load(Type.getType(depend)), fingerprints, sources)) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            scantime = System.nanoTime() - scantime;
-            log.info("");
-            log.info("Building bridges...");
-            scan = new DirectoryScanner();
-            scan.setBasedir(classpath);
-            scan.setIncludes(this.includes);
-            scan.setExcludes(this.excludes);
-            scan.scan();
-            long comptime = System.nanoTime();
-            for (String path : scan.getIncludedFiles()) {
-                File in = new File(classpath, path);
-                if (in.exists()) {
-                    ClassNode code;
-                    BridgeVisitor visitor;
-                    path = path.replace(File.separatorChar, '/');
-                    if (log.isDebugEnabled()) log.debug("<- " + path);
-                    try (InputStream is = Files.newInputStream(in.toPath())) {
-                        new ClassReader(is).accept(visitor = new BridgeVisitor(code = new ClassNode(), types), ClassReader.EXPAND_FRAMES);
-                    }
-                    int i;
-                    if (visitor.bridges != 0 || visitor.invocations != 0 || visitor.adjustments != 0 || visitor.removals != 0 || visitor.forks.size() != 1) {
-                        StringBuilder msg = new StringBuilder().append(" -> ").append(
-                                ((i = path.lastIndexOf(visitor.name)) >= 0 && path.indexOf('/', i + visitor.name.length()) < 0)?
-                                        path.substring(0, i) + visitor.name.replace('/', '.') : path
-                        );
-                        if ((i = visitor.forks.size()) != 1) msg.append("  +").append(--i).append(" fork").append((i == 1)?"":"s");
-                        if ((i = visitor.bridges) != 0) msg.append("  +").append(i).append(" bridge").append((i == 1)?"":"s");
-                        if ((i = visitor.invocations) != 0) msg.append("  +").append(i).append(" invocation").append((i == 1)?"":"s");
-                        if ((i = visitor.adjustments) != 0) msg.append("  +").append(i).append(" adjustment").append((i == 1)?"":"s");
-                        if ((i = visitor.removals) != 0) msg.append("  +").append(i).append(" removal").append((i == 1)?"":"s");
-                        log.info(msg.toString());
-                    }
-                    File out;
-                    HierarchicalWriter writer;
-                    for (Map.Entry<Integer, Boolean> e : visitor.forks.entrySet()) {
-                        code.accept(new ForkVisitor(
-                                writer = new HierarchicalWriter(types, ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS),
-                                visitor,
-                                i = e.getKey(),
-                                flags
-                        ));
-                        (out = ((e.getValue())? new File(classpath, "META-INF/versions/" + i + '/' + visitor.name + ".class") : in)).getParentFile().mkdirs();
-                        try (OutputStream os = Files.newOutputStream(out.toPath())) {
-                            os.write(writer.toByteArray());
-                        }
-                    }
+    private boolean recompiled(BuildState previous, BuildState current, String path, Recompiled result) throws IOException {
+        if (result == null) return false;
+        final BuildState.Entry entry;
+        boolean modified = result.modified;
+        if (previous != null && (entry = previous.classes.get(path)) != null && clean(entry, result.entry)) modified = true;
+        if (result.message != null) getLog().info(result.message);
+        current.classes.put(path, result.entry);
+        return modified;
+    }
+
+    private boolean clean(BuildState.Entry entry, BuildState.Entry replacement) throws IOException {
+        boolean modified = false;
+        next: for (int version : entry.forks) {
+            if (replacement != null && replacement.name.equals(entry.name)) {
+                for (int fork : replacement.forks) {
+                    if (fork == version) continue next;
                 }
             }
-
-            comptime = System.nanoTime() - comptime;
-            log.info("");
-            log.info("Hierarchy resolved in " + humanize(scantime));
-            log.info("Recompiled in " + humanize(comptime));
-            classpath.setLastModified((Instant.now().getEpochSecond() * 1000) + 1000);
-        } catch (Throwable e) {
-            throw new MojoExecutionException(e);
+            final File file = new File(classpath, entry.fork(version));
+            if (Files.deleteIfExists(file.toPath())) {
+                if (getLog().isDebugEnabled()) getLog().debug("-x " + file);
+                modified = true;
+            }
         }
+        return modified;
     }
 
-    private static String humanize(long timing) {
-        if (timing < 1000000L) {
-            return timing + "ns";
-        } else if (timing < 1000000000L) {
-            return String.format("%.2fms", timing / 1000000D);
-        } else if (timing < 60000000000L) {
-            return String.format("%.4fs", timing / 1000000000D);
-        } else if (timing < 3600000000000L) {
-            return String.format("%.4fm", timing / 60000000000D);
-        } else if (timing < 86400000000000L) {
-            return String.format("%.4fh", timing / 3600000000000D);
-        } else if (timing < 604800000000000L) {
-            return String.format("%.5fd", timing / 86400000000000D);
-        } else {
-            return String.format("%.5fw", timing / 604800000000000D);
+    private Recompiled recompile(BridgeCompiler compiler, String path, byte[] data, byte[] hash, byte[] source, boolean adopted) throws IOException {
+        if (data == null) return null;
+        final File in = new File(classpath, path);
+        final BridgeCompiler.Result result = compiler.transform(path, data);
+        boolean modified = false;
+        byte[] output = hash;
+        if (result.data != null) {
+            if (compiler.write(in, result.data, data)) modified = true;
+            output = BuildState.hash(result.data);
+        }
+        for (int i = 0; i != result.forks.length; ++i) {
+            if (compiler.write(new File(classpath, result.fork(i)), result.versions[i], null)) modified = true;
         }
+        return new Recompiled(result.message, new BuildState.Entry(
+                result.name,
+                (source == null)? hash : source,
+                output,
+                result.forks,
+                result.depends,
+                adopted
+        ), modified);
     }
 }
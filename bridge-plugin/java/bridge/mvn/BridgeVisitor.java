@@ -5,6 +5,8 @@ import bridge.asm.TypeMap;
 import org.objectweb.asm.*;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -20,6 +22,7 @@ final class BridgeVisitor extends ClassVisitor {
     KnownType type;
     BridgeData data;
     HashMap<Integer, Boolean> forks = new HashMap<>();
+    HashSet<String> dirty = new HashSet<>();
     String adopt, name, src = "Unknown Source";
     int version, bridges, invocations, adjustments, removals;
 
@@ -28,6 +31,11 @@ final class BridgeVisitor extends ClassVisitor {
         this.types = types;
     }
 
+    <T extends ClassVisitor> T setDelegate(T value) {
+        cv = value;
+        return value;
+    }
+
     @Override
     public void visit(int version, int access, String name, String signature, String extended, String[] implemented) {
         KnownType type = this.type = types.loadClass(this.name = name);
@@ -90,13 +98,13 @@ final class BridgeVisitor extends ClassVisitor {
 
         private Map<BridgeAnnotation.Data, Field> initStatic() {
             if (clinit) throw new IllegalStateException("Attempted @Bridge to static field after <clinit>: " + this.name.replace('/', '.') + '.' + name + '(' + src + ')');
-            if (clfields == null) clfields = new HashMap<>();
+            if (clfields == null) clfields = new LinkedHashMap<>();
             return clfields;
         }
 
         private Map<BridgeAnnotation.Data, Field> initVirtual() {
             if (init) throw new IllegalStateException("Attempted @Bridge to instance field after <init>: " + this.name.replace('/', '.') + '.' + name + '(' + src + ')');
-            if (fields == null) fields = new HashMap<>();
+            if (fields == null) fields = new LinkedHashMap<>();
             return fields;
         }
 
@@ -183,6 +191,7 @@ final class BridgeVisitor extends ClassVisitor {
                     }
 
                     if (map != null) {
+                        dirty.add(name + descriptor);
                         BridgeAnnotation.Data data; Field field;
                         for (Entry<BridgeAnnotation.Data, Field> entry : map.entrySet()) {
                             data = entry.getKey();
@@ -216,6 +225,7 @@ final class BridgeVisitor extends ClassVisitor {
                     final KnownType[] METHOD = types.load(Type.getArgumentTypes(descriptor));
                     for (BridgeAnnotation.Data data : bridges) {
                         MethodVisitor mv = cv.visitMethod(data.access, data.name, data.desc, data.sign, data.ex);
+                        dirty.add(data.name + data.desc);
                         data.annotate(mv::visitAnnotation);
                         mv.visitCode();
                         mv.visitLabel(new Label());
@@ -0,0 +1,81 @@
+package bridge.mvn;
+
+import jdk.jfr.*;
+
+// Flight recorder events for the recompilation pipeline. Disabled event types are never instrumented, so these cost nothing unless a recording is running.
+final class BuildEvents {
+    // These fire for every class or fork, so callers check their type before allocating one
+    static final EventType TRANSFORM = EventType.getEventType(Transform.class), FORK = EventType.getEventType(Fork.class);
+
+    private BuildEvents() {}
+
+    @Name("bridge.Build")
+    @Label("Build")
+    @Category("Bridge")
+    @Description("A bridge goal execution")
+    @StackTrace(false)
+    static final class Build extends Event {
+        @Label("Goal")
+        String goal;
+
+        @Label("Execution")
+        String execution;
+
+        @Label("Project")
+        String project;
+    }
+
+    @Name("bridge.Classpath")
+    @Label("Classpath Scan")
+    @Category({"Bridge", "Hierarchy"})
+    @Description("Class headers read from a classpath entry or hierarchy snapshot")
+    @StackTrace(false)
+    static final class Classpath extends Event {
+        @Label("Path")
+        String path;
+
+        @Label("Kind")
+        String kind;
+
+        @Label("Classes")
+        int classes;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("bridge.Transform")
+    @Label("Transform")
+    @Category("Bridge")
+    @Description("A class read through the bridge visitor")
+    @StackTrace(false)
+    static final class Transform extends Event {
+        @Label("Path")
+        String path;
+
+        @Label("Class Name")
+        String type;
+
+        @Label("Bytes")
+        @DataAmount
+        int bytes;
+    }
+
+    @Name("bridge.Fork")
+    @Label("Fork")
+    @Category("Bridge")
+    @Description("A class version emitted through the fork visitor")
+    @StackTrace(false)
+    static final class Fork extends Event {
+        @Label("Class Name")
+        String type;
+
+        @Label("Version")
+        int version;
+
+        @Label("Bytes")
+        @DataAmount
+        int bytes;
+    }
+}
@@ -0,0 +1,122 @@
+package bridge.mvn;
+
+import bridge.asm.TypeMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+// Collects timings for a single compiler run and writes them out as JSON. All timings are in nanoseconds.
+final class BuildReport {
+    final long start = System.nanoTime();
+    final LongAdder read = new LongAdder(), scan = new LongAdder(), transform = new LongAdder(), emit = new LongAdder(), write = new LongAdder();
+    final List<Entry> classpath = new ArrayList<>();
+    final ConcurrentLinkedQueue<Unit> classes = new ConcurrentLinkedQueue<>();
+    long resolve;
+
+    static final class Entry {
+        final File file;
+        final String kind;
+        final LongAdder time = new LongAdder();
+        boolean cached;
+        int types;
+
+        Entry(File file, String kind) {
+            this.file = file;
+            this.kind = kind;
+        }
+    }
+
+    static final class Unit {
+        final String path;
+        final int input, output;
+        final int[] forks, sizes;
+        final long transform, emit;
+
+        Unit(String path, int input, int output, int[] forks, int[] sizes, long transform, long emit) {
+            this.path = path;
+            this.input = input;
+            this.output = output;
+            this.forks = forks;
+            this.sizes = sizes;
+            this.transform = transform;
+            this.emit = emit;
+        }
+    }
+
+    Entry entry(File file, String kind) {
+        final Entry entry = new Entry(file, kind);
+        classpath.add(entry);
+        return entry;
+    }
+
+    void write(File file, TypeMap types, int flags) throws IOException {
+        final File directory = file.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+        final Path temp = Files.createTempFile(directory.toPath(), file.getName(), ".tmp");
+        try {
+            try (Writer out = Files.newBufferedWriter(temp, UTF_8)) {
+                out.write("{\n  \"flags\": " + flags);
+                out.write(",\n  \"phases\": {");
+                out.write("\"total\": " + (System.nanoTime() - start));
+                out.write(", \"resolve\": " + resolve);
+                out.write(", \"read\": " + read.sum());
+                out.write(", \"scan\": " + scan.sum());
+                out.write(", \"transform\": " + transform.sum());
+                out.write(", \"emit\": " + emit.sum());
+                out.write(", \"write\": " + write.sum());
+                out.write("},\n  \"types\": {\"size\": " + types.size() + ", \"misses\": " + types.misses() + ", \"unresolved\": " + types.unresolved() + '}');
+
+                out.write(",\n  \"classpath\": [");
+                String separator = "\n    ";
+                for (Entry entry : classpath) {
+                    out.write(separator);
+                    out.write("{\"path\": " + string(entry.file.getAbsolutePath()) + ", \"kind\": " + string(entry.kind) + ", \"cached\": " + entry.cached + ", \"classes\": " + entry.types + ", \"time\": " + entry.time.sum() + '}');
+                    separator = ",\n    ";
+                }
+                out.write(classpath.isEmpty()? "]" : "\n  ]");
+
+                out.write(",\n  \"classes\": [");
+                separator = "\n    ";
+                for (Unit unit : classes) {
+                    out.write(separator);
+                    out.write("{\"path\": " + string(unit.path) + ", \"input\": " + unit.input + ", \"output\": " + ((unit.output < 0)? "null" : Integer.toString(unit.output)) + ", \"forks\": {");
+                    for (int i = 0; i != unit.forks.length; ++i) {
+                        if (i != 0) out.write(", ");
+                        out.write("\"" + unit.forks[i] + "\": " + unit.sizes[i]);
+                    }
+                    out.write("}, \"transform\": " + unit.transform + ", \"emit\": " + unit.emit + '}');
+                    separator = ",\n    ";
+                }
+                out.write(classes.isEmpty()? "]\n}\n" : "\n  ]\n}\n");
+            }
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String string(String value) {
+        final StringBuilder str = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0, length = value.length(); i != length; ++i) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                str.append('\\').append(c);
+            } else if (c < 0x20) {
+                str.append(String.format("\\u%04x", (int) c));
+            } else {
+                str.append(c);
+            }
+        }
+        return str.append('"').toString();
+    }
+}
@@ -0,0 +1,197 @@
+package bridge.mvn;
+
+import bridge.asm.ArrayType;
+import bridge.asm.KnownType;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+final class BuildState {
+    private static final int MAGIC = 0x42524453;
+    private static final int VERSION = 2;
+    final Map<String, Entry> classes = new LinkedHashMap<>();
+    final Map<String, Long> types = new HashMap<>();
+    final String version, classpath;
+    final int flags;
+    byte[] inputs;
+
+    BuildState(String version, String classpath, int flags) {
+        this.version = (version == null)? "" : version;
+        this.classpath = classpath;
+        this.flags = flags;
+    }
+
+    static final class Entry {
+        final String name;
+        final byte[] source, output;
+        final int[] forks;
+        final String[] depends;
+        final boolean adopted;
+
+        Entry(String name, byte[] source, byte[] output, int[] forks, String[] depends, boolean adopted) {
+            this.name = name;
+            this.source = source;
+            this.output = output;
+            this.forks = forks;
+            this.depends = depends;
+            this.adopted = adopted;
+        }
+
+        String fork(int version) {
+            return "META-INF/versions/" + version + '/' + name + ".class";
+        }
+    }
+
+    boolean adopted() {
+        for (Entry entry : classes.values()) if (entry.adopted) return true;
+        return false;
+    }
+
+    static BuildState read(File file, String version, String classpath, int flags) throws IOException {
+        if (!file.isFile()) return null;
+        final BuildState state = new BuildState(version, classpath, flags);
+        final long limit = file.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !state.version.equals(in.readUTF()) || !classpath.equals(in.readUTF()) || in.readInt() != flags) return null;
+            state.inputs = read(in);
+
+            final String[] strings = new String[count(in, limit)];
+            for (int i = 0; i != strings.length; ++i) {
+                state.types.put(strings[i] = in.readUTF(), in.readLong());
+            }
+            for (int i = 0, length = count(in, limit); i != length; ++i) {
+                final String path = in.readUTF();
+                final String name = in.readUTF();
+                final byte[] source = read(in);
+                final byte[] output = read(in);
+                final int[] forks = new int[in.readUnsignedShort()];
+                for (int k = 0; k != forks.length; ++k) {
+                    forks[k] = in.readInt();
+                }
+                final String[] depends = new String[count(in, limit)];
+                for (int k = 0; k != depends.length; ++k) {
+                    depends[k] = strings[in.readInt()];
+                }
+                state.classes.put(path, new Entry(name, source, output, forks, depends, in.readBoolean()));
+            }
+        } catch (EOFException | UTFDataFormatException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            return null;
+        }
+        return state;
+    }
+
+    // Every counted element takes at least one byte, so a count that could not fit in the file is corrupt
+    private static int count(DataInputStream in, long limit) throws IOException {
+        final int count;
+        if ((count = in.readInt()) < 0 || count > limit) throw new EOFException();
+        return count;
+    }
+
+    private static byte[] read(DataInputStream in) throws IOException {
+        final byte[] data = new byte[in.readUnsignedByte()];
+        in.readFully(data);
+        return data;
+    }
+
+    void write(File file) throws IOException {
+        final File directory = file.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+
+        final Path temp = Files.createTempFile(directory.toPath(), file.getName(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(version);
+                out.writeUTF(classpath);
+                out.writeInt(flags);
+                write(out, inputs);
+
+                final Map<String, Integer> strings = new HashMap<>();
+                out.writeInt(types.size());
+                for (Map.Entry<String, Long> type : types.entrySet()) {
+                    strings.put(type.getKey(), strings.size());
+                    out.writeUTF(type.getKey());
+                    out.writeLong(type.getValue());
+                }
+                out.writeInt(classes.size());
+                for (Map.Entry<String, Entry> e : classes.entrySet()) {
+                    final Entry entry = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeUTF(entry.name);
+                    write(out, entry.source);
+                    write(out, entry.output);
+                    out.writeShort(entry.forks.length);
+                    for (int fork : entry.forks) {
+                        out.writeInt(fork);
+                    }
+                    out.writeInt(entry.depends.length);
+                    for (String depend : entry.depends) {
+                        out.writeInt(strings.get(depend));
+                    }
+                    out.writeBoolean(entry.adopted);
+                }
+            }
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void write(DataOutputStream out, byte[] data) throws IOException {
+        out.writeByte(data.length);
+        out.write(data);
+    }
+
+    static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static byte[] hash(byte[] data) {
+        return digest().digest(data);
+    }
+
+    static long fingerprint(KnownType type, Map<KnownType, Long> fingerprints, Map<String, byte[]> sources) {
+        if (type instanceof ArrayType) type = ((ArrayType) type).root;
+        Long value;
+        if ((value = fingerprints.get(type)) == null) {
+            final MessageDigest digest = digest();
+            final KnownType extended = type.supertype();
+            final byte[] source;
+            digest.update(type.type.getDescriptor().getBytes(StandardCharsets.UTF_8));
+            digest.update(long2bytes(type.modifiers()));
+            if (extended != null) digest.update(long2bytes(fingerprint(extended, fingerprints, sources)));
+            for (KnownType implemented : type.interfaces()) {
+                digest.update(long2bytes(fingerprint(implemented, fingerprints, sources)));
+            }
+            if ((source = sources.get(type.type.getInternalName())) != null) digest.update(source);
+
+            final byte[] hash = digest.digest();
+            long fingerprint = 0;
+            for (int i = 0; i != Long.BYTES; ++i) {
+                fingerprint = (fingerprint << 8) | (hash[i] & 0xFF);
+            }
+            fingerprints.put(type, value = fingerprint);
+        }
+        return value;
+    }
+
+    private static byte[] long2bytes(long value) {
+        final byte[] bytes = new byte[Long.BYTES];
+        for (int i = Long.BYTES; i != 0;) {
+            bytes[--i] = (byte) value;
+            value >>>= 8;
+        }
+        return bytes;
+    }
+}
@@ -7,20 +7,22 @@ import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.ModuleVisitor;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
 
 import static org.objectweb.asm.Opcodes.*;
 
 public final class ForkVisitor extends ClassVisitor {
-    static final byte NO_LINE_NUMBERS    = 0b000001;
-    static final byte NO_MODULE_VERSIONS = 0b000010;
-    static final byte NO_SOURCE_NAMES    = 0b000100;
-    static final byte NO_SOURCE_EXT      = 0b001000;
-    static final byte NO_NAMED_LOCALS    = 0b010000;
-    static final byte NO_NAMED_PARAMS    = 0b100000;
+    static final byte NO_LINE_NUMBERS    = 0b0000001;
+    static final byte NO_MODULE_VERSIONS = 0b0000010;
+    static final byte NO_SOURCE_NAMES    = 0b0000100;
+    static final byte NO_SOURCE_EXT      = 0b0001000;
+    static final byte NO_NAMED_LOCALS    = 0b0010000;
+    static final byte NO_NAMED_PARAMS    = 0b0100000;
+    static final byte KEEP_FRAMES        = 0b1000000;
 
     private final BridgeVisitor caller;
     private final boolean params, locals, lines;
@@ -204,18 +206,22 @@ public final class ForkVisitor extends ClassVisitor {
     // > removes unreachable bytecode
     // > removes user-specified debugging elements
     private final class Clean extends QueuedVisitor {
-        private final HashMap<Label, LinkedHashMap<Runnable, Block>> handlers = new HashMap<>();
-        private final LinkedList<Block> blocks = new LinkedList<>();
+        private final HashMap<Label, ArrayList<Region>> pending = new HashMap<>();
+        private final ArrayList<Region> regions = new ArrayList<>();
+        private final ArrayList<Block> blocks = new ArrayList<>();
+        private final BitSet used = new BitSet();
         private Block block;
-        private Runnable line;
+        private int line = -1, last = -1, maxs = -1;
+        private int[] nodes, enter, exit, roots;
 
         private final class Block {
-            private LinkedList<Label> labels;
-            private LinkedList<Block> branches;
-            private LinkedList<Runnable> handlers, ops, attrs;
+            private ArrayList<Label> labels;
+            private ArrayList<Block> branches;
+            private ArrayList<Region> starts;
+            private ArrayList<Runnable> attrs;
             private Block merge, next;
-            private boolean used;
-            private int fop;
+            private Label target;
+            private int index = -1, fop, from = -1, to = -1;
 
             private Block dereference() {
                 Block block = this;
@@ -245,18 +251,37 @@ public final class ForkVisitor extends ClassVisitor {
                         attrs.addAll(next.attrs);
                     }
                 }
-                if (next.ops != null) ops = next.ops;
+                if (target == null) target = next.target;
+                if (next.from >= 0) {
+                    from = next.from;
+                    to = next.to;
+                }
                 this.fop = next.fop;
                 this.next = next.next;
                 next.merge = this;
-                used = next.used;
+            }
+        }
+
+        // A try-catch block, which reaches its handler from each block that was open at a label inside of it
+        private final class Region implements Runnable {
+            private final Label start, end, handler;
+            private final String type;
+            private final Block block;
+            private Block target;
+            private int from, to = Integer.MAX_VALUE;
+
+            private Region(Label start, Label end, Label handler, String type, Block block) {
+                this.start = start;
+                this.end = end;
+                this.handler = handler;
+                this.type = type;
+                this.block = block;
             }
 
-            private boolean merged(Block next) {
-                for (Block block = this;;) {
-                    if ((block = block.dereference()) == next) return true;
-                    if ((block.ops.size() != 0)) return false;
-                    if ((block = block.next) == null) return true;
+            @Override
+            public void run() {
+                if (!merged(block, (Block) end.info)) {
+                    mv.visitTryCatchBlock(start, end, handler, type);
                 }
             }
         }
@@ -264,29 +289,35 @@ public final class ForkVisitor extends ClassVisitor {
         private Clean(MethodVisitor delegate) {
             super(ASM9, delegate);
             blocks.add(this.block = new Block());
-            block.ops = ops;
+            block.index = block.from = 0;
+        }
+
+        // Each block owns the range of operations that were queued while it was open
+        private Block open(Block block) {
+            this.block.to = ops.size();
+            block.index = blocks.size();
+            blocks.add(this.block = block);
+            block.from = ops.size();
+            return block;
         }
 
         @Override
         public void visitMaxs(int maxStack, int maxLocals) {
-            final Block block;
-            blocks.add(this.block = block = new Block());
-            block.ops = ops = new LinkedList<>();
-            block.used = true;
+            maxs = open(new Block()).index;
             super.visitMaxs(maxStack, maxLocals);
         }
 
         @Override
         public void visitLineNumber(int line, Label start) {
-            if (lines) this.line = () -> super.visitLineNumber(line, start);
+            if (lines) this.line = ops.lineNumber(line, start);
         }
 
         @Override
-        public void visitOperation(int opcode, Runnable op) {
-            final Runnable line;
-            if ((line = this.line) != null) {
-                this.line = null;
-                line.run();
+        public void visitOperation(int opcode, int op) {
+            final int line;
+            if ((line = this.line) >= 0) {
+                this.line = -1;
+                ops.add(line);
             }
             super.visitOperation(opcode, op);
         }
@@ -300,9 +331,9 @@ public final class ForkVisitor extends ClassVisitor {
         public void visitLocalVariable(String name, String descriptor, String signature, Label start, Label end, int index) {
             if (locals) {
                 final Block block = (end.info != null)? (Block) end.info : new Block();
-                if (block.attrs == null) block.attrs = new LinkedList<>();
+                if (block.attrs == null) block.attrs = new ArrayList<>();
                 block.attrs.add(() -> {
-                    if (!((Block) start.info).merged(block.dereference())) {
+                    if (!merged((Block) start.info, block)) {
                         mv.visitLocalVariable(name, descriptor, signature, start, end, index);
                     }
                 });
@@ -313,60 +344,53 @@ public final class ForkVisitor extends ClassVisitor {
         @Override
         public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
             final Block sb = (start.info != null)? (Block) start.info : new Block();
-            if (sb.handlers == null) sb.handlers = new LinkedList<>();
-            sb.handlers.add(() -> {
-                final Block hb = (handler.info != null)? (Block) handler.info : new Block();
-                handlers.computeIfAbsent(end, k -> new LinkedHashMap<>()).put(() -> {
-                    if (!sb.merged(((Block) end.info).dereference())) {
-                        mv.visitTryCatchBlock(start, end, handler, type);
-                    }
-                }, hb);
-                handler.info = hb;
-            });
+            if (sb.starts == null) sb.starts = new ArrayList<>();
+            sb.starts.add(new Region(start, end, handler, type, sb));
             start.info = sb;
         }
 
         @Override
         public void visitLabel(Label label) {
-            LinkedHashMap<Runnable, Block> handlers = this.handlers.remove(label);
+            final ArrayList<Region> ended;
+            if ((ended = pending.remove(label)) != null) for (Region region : ended) {
+                region.to = last;
+            }
             Block block = this.block;
-            if (label.info != null) {
-                final Block info = (Block) label.info;
-                if (info.handlers != null) for (Runnable handler : info.handlers) {
-                    handler.run();
+            final Block info;
+            if ((info = (Block) label.info) != null) {
+                if (info.starts != null) for (Region region : info.starts) {
+                    final Label handler = region.handler;
+                    handler.info = region.target = (handler.info != null)? (Block) handler.info : new Block();
+                    pending.computeIfAbsent(region.end, k -> new ArrayList<>()).add(region);
+                    regions.add(region);
                 }
-                if (ops.size() != 0 || block.fop != 0) {
-                    blocks.add(this.block = block = block.next = info);
-                    block.ops = ops = new LinkedList<>();
+                if (ops.size() != block.from || block.fop != 0) {
+                    block = open(block.next = info);
                 }
                 else block.merge(info);
-            } else {
-                if (ops.size() != 0 || block.fop != 0) {
-                    blocks.add(this.block = block = block.next = new Block());
-                    block.ops = ops = new LinkedList<>();
+                if (info.starts != null) for (Region region : info.starts) {
+                    region.from = block.index;
                 }
-            }
-            if (this.handlers.size() != 0) {
-                if (block.branches == null) block.branches = new LinkedList<>();
-                for (Iterator<LinkedHashMap<Runnable, Block>> it = this.handlers.values().iterator(); it.hasNext();) {
-                    block.branches.addAll(it.next().values());
+            } else {
+                if (ops.size() != block.from || block.fop != 0) {
+                    block = open(block.next = new Block());
                 }
             }
-            if (handlers != null) {
-                if (block.attrs == null) block.attrs = new LinkedList<>();
-                block.attrs.addAll(handlers.keySet());
+            if (ended != null) {
+                if (block.attrs == null) block.attrs = new ArrayList<>();
+                block.attrs.addAll(ended);
             }
-            if (block.labels == null) block.labels = new LinkedList<>();
+            if (block.labels == null) block.labels = new ArrayList<>();
             block.labels.add(label);
             label.info = block;
+            last = block.index;
         }
 
         @Override
         public void visitInsn(int opcode) {
             if (opcode >= IRETURN && opcode <= RETURN || opcode == ATHROW) {
                 block.fop = opcode;
-                blocks.add(this.block = new Block());
-                block.ops = ops = new LinkedList<>();
+                open(new Block());
                 return;
             }
             super.visitInsn(opcode);
@@ -375,9 +399,10 @@ public final class ForkVisitor extends ClassVisitor {
         @Override
         public void visitJumpInsn(int opcode, Label label) {
             if (opcode == GOTO) {
-                label.info = block.next = (label.info != null)? (Block) label.info : new Block();
-                blocks.add(this.block = new Block());
-                block.ops = ops = new LinkedList<>();
+                final Block info;
+                label.info = block.next = info = (label.info != null)? (Block) label.info : new Block();
+                if (info.target == null) info.target = label;
+                open(new Block());
                 return;
             }
             super.visitJumpInsn(opcode, label);
@@ -389,8 +414,7 @@ public final class ForkVisitor extends ClassVisitor {
             super.visitTableSwitchInsn(min, max, dflt, labels);
             for (Label label : labels) branch(label);
             branch(dflt);
-            blocks.add(this.block = new Block());
-            block.ops = ops = new LinkedList<>();
+            open(new Block());
         }
 
         @Override
@@ -398,43 +422,31 @@ public final class ForkVisitor extends ClassVisitor {
             super.visitLookupSwitchInsn(dflt, keys, labels);
             for (Label label : labels) branch(label);
             branch(dflt);
-            blocks.add(this.block = new Block());
-            block.ops = ops = new LinkedList<>();
+            open(new Block());
         }
 
         private void branch(Label label) {
             final Block block, info;
-            if ((block = this.block).branches == null) block.branches = new LinkedList<>();
+            if ((block = this.block).branches == null) block.branches = new ArrayList<>();
             block.branches.add(info = (label.info != null)? (Block) label.info : new Block());
+            if (info.target == null) info.target = label;
             label.info = info;
         }
 
         @Override
         public void visitEnd() {
-            LinkedList<Block> branches = new LinkedList<>();
-            for (Block block = blocks.getFirst();;) {
-                if (!block.used) {
-                    block.used = true;
-                    if (block.branches != null && block.ops.size() != 0) {
-                        branches.addAll(block.branches);
-                    }
-                    if ((block = block.next) != null) {
-                        block = block.dereference();
-                        continue;
-                    }
-                }
-                if (branches.size() == 0) break;
-                block = branches.removeFirst().dereference();
-            }
+            block.to = ops.size();
+            if (maxs >= 0) used.set(maxs);
+            reach();
 
             Block next = null;
-            for (Iterator<Block> it = blocks.iterator(); it.hasNext();) {
-                Block block = it.next();
-                while (!block.used) {
-                    block.merge(it.next());
+            for (int i = 0, size = blocks.size(); i != size; ++i) {
+                final Block block = blocks.get(i);
+                while (!used.get(i)) {
+                    block.merge(blocks.get(++i));
                 }
                 if (next != null && (next = next.dereference()) != block) {
-                    mv.visitJumpInsn(GOTO, next.labels.getFirst());
+                    mv.visitJumpInsn(GOTO, (next.target != null)? next.target : next.labels.getFirst());
                 }
                 if (block.labels != null) for (Label label : block.labels) {
                     mv.visitLabel(label);
@@ -442,9 +454,7 @@ public final class ForkVisitor extends ClassVisitor {
                 if (block.attrs != null) for (Runnable attr : block.attrs) {
                     attr.run();
                 }
-                for (Runnable op : block.ops) {
-                    op.run();
-                }
+                ops.accept(mv, block.from, block.to);
                 if (block.fop != 0) {
                     mv.visitInsn(block.fop);
                 }
@@ -452,5 +462,128 @@ public final class ForkVisitor extends ClassVisitor {
             }
             mv.visitEnd();
         }
+
+        // Marks every reachable block, where each region is entered at most once
+        // Regions are kept in a max tree of their last block, ordered by their first, so the ones covering a block are found without scanning
+        private void reach() {
+            final int count = regions.size();
+            final int[] starts = new int[count];
+            int size = 1;
+            while (size < count) size <<= 1;
+            final int[] tree = new int[size << 1];
+            Arrays.fill(tree, -1);
+            for (int i = 0; i != count; ++i) {
+                final Region region = regions.get(i);
+                starts[i] = region.from;
+                tree[size + i] = region.to;
+            }
+            for (int i = size - 1; i != 0; --i) tree[i] = Math.max(tree[i << 1], tree[i << 1 | 1]);
+
+            final ArrayDeque<Block> branches = new ArrayDeque<>();
+            for (Block block = blocks.getFirst();;) {
+                int index;
+                while (block != null && (index = block.index) >= 0 && !used.get(index)) {
+                    used.set(index);
+                    if (block.to != block.from) {
+                        if (block.branches != null) branches.addAll(block.branches);
+                        if (count != 0) {
+                            int limit = Arrays.binarySearch(starts, index);
+                            if (limit < 0) limit = -limit - 1;
+                            else while (++limit != count && starts[limit] == index);
+                            for (int region; (region = find(tree, 1, 0, size, limit, index)) >= 0;) {
+                                branches.add(regions.get(region).target);
+                                for (tree[region += size] = -1; (region >>= 1) != 0;) {
+                                    tree[region] = Math.max(tree[region << 1], tree[region << 1 | 1]);
+                                }
+                            }
+                        }
+                    }
+                    block = (block.next != null)? block.next.dereference() : null;
+                }
+                if (branches.isEmpty()) break;
+                block = branches.removeFirst().dereference();
+            }
+        }
+
+        // Finds the first region before the limit that covers the block
+        private static int find(int[] tree, int node, int lo, int hi, int limit, int index) {
+            if (lo >= limit || tree[node] < index) return -1;
+            if (hi - lo == 1) return lo;
+            final int mid = (lo + hi) >>> 1, found;
+            if ((found = find(tree, node << 1, lo, mid, limit, index)) >= 0) return found;
+            return find(tree, node << 1 | 1, mid, hi, limit, index);
+        }
+
+        // Determines whether no code would be written between two blocks
+        // Empty blocks form a forest where each one points to the block it falls into, so this is an ancestor check
+        private boolean merged(Block start, Block end) {
+            if (nodes == null) index();
+            int node = node(start);
+            final int last = node(end);
+            if (node == last) return true;
+            if (enter[node] >= 0) {
+                if (last >= 0 && enter[last] >= 0 && enter[last] <= enter[node] && exit[node] <= exit[last]) return true;
+                final Block root = blocks.get(roots[node]);
+                return root.to == root.from;
+            }
+            for (int steps = blocks.size(); steps != 0; --steps) {
+                final Block block = blocks.get(node);
+                if (block.to != block.from) return false;
+                if (block.next == null || (node = node(block.next)) == last) return true;
+                if (node < 0) return false;
+            }
+            return false;
+        }
+
+        // The used block that a block will be written as
+        private int node(Block block) {
+            while (block.index < 0 && block.merge != null) block = block.merge;
+            return (block.index < 0)? -1 : nodes[block.index];
+        }
+
+        private void index() {
+            final int size = blocks.size();
+            final int[] nodes = this.nodes = new int[size];
+            for (int i = size - 1, node = -1; i >= 0; --i) {
+                nodes[i] = (used.get(i))? node = i : node;
+            }
+
+            final int[] parents = new int[size], children = new int[size], siblings = new int[size];
+            Arrays.fill(parents, -1);
+            Arrays.fill(children, -1);
+            for (int i = used.nextSetBit(0); i >= 0; i = used.nextSetBit(i + 1)) {
+                final Block block = blocks.get(i);
+                final int parent;
+                if (block.to == block.from && block.next != null && (parent = node(block.next)) >= 0) {
+                    parents[i] = parent;
+                    siblings[i] = children[parent];
+                    children[parent] = i;
+                }
+            }
+
+            final int[] enter = this.enter = new int[size], exit = this.exit = new int[size], roots = this.roots = new int[size];
+            final int[] stack = new int[size];
+            Arrays.fill(enter, -1);
+            int clock = 0;
+            for (int i = used.nextSetBit(0); i >= 0; i = used.nextSetBit(i + 1)) {
+                if (parents[i] >= 0) continue;
+                int depth = 0;
+                stack[depth++] = i;
+                enter[i] = clock++;
+                roots[i] = i;
+                while (depth != 0) {
+                    final int top = stack[depth - 1], child;
+                    if ((child = children[top]) >= 0) {
+                        children[top] = siblings[child];
+                        stack[depth++] = child;
+                        enter[child] = clock++;
+                        roots[child] = i;
+                    } else {
+                        exit[top] = clock++;
+                        --depth;
+                    }
+                }
+            }
+        }
     }
 }
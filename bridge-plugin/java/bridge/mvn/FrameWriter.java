@@ -0,0 +1,82 @@
+package bridge.mvn;
+
+import bridge.asm.HierarchicalWriter;
+import bridge.asm.TypeMap;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.util.BitSet;
+import java.util.Set;
+
+import static org.objectweb.asm.Opcodes.ASM9;
+
+// Copies untouched methods through with their original frames and maxs, and recomputes them for rewritten methods only.
+// Rewritten methods are written to a separate COMPUTE_FRAMES writer and then spliced back in at their original position.
+// Without a set of rewritten methods, frames and maxs are recomputed for the entire class.
+final class FrameWriter extends ClassVisitor {
+    private final ClassWriter writer, scratch;
+    private final BitSet order = new BitSet();
+    private final Set<String> dirty;
+    private int methods;
+
+    FrameWriter(TypeMap types, Set<String> dirty) {
+        super(ASM9);
+        if ((this.dirty = dirty) == null) {
+            cv = writer = new HierarchicalWriter(types, ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+            scratch = null;
+        } else {
+            cv = writer = new HierarchicalWriter(types, 0);
+            scratch = new HierarchicalWriter(types, ClassWriter.COMPUTE_FRAMES);
+        }
+    }
+
+    @Override
+    public void visit(int version, int access, String name, String signature, String extended, String[] implemented) {
+        super.visit(version, access, name, signature, extended, implemented);
+        if (scratch != null) scratch.visit(version, access, name, signature, extended, implemented);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+        if (dirty != null && dirty.contains(name + descriptor)) {
+            order.set(methods++);
+            return scratch.visitMethod(access, name, descriptor, signature, exceptions);
+        }
+        ++methods;
+        return super.visitMethod(access, name, descriptor, signature, exceptions);
+    }
+
+    byte[] toByteArray() {
+        final byte[] data = this.writer.toByteArray();
+        if (order.isEmpty()) return data;
+
+        final ClassNode computed = new ClassNode();
+        new ClassReader(scratch.toByteArray()).accept(computed, 0);
+        final ClassReader reader = new ClassReader(data);
+        final ClassWriter writer = new ClassWriter(reader, 0);
+        reader.accept(new ClassVisitor(ASM9, writer) {
+            private int i, k;
+
+            private void splice() {
+                for (; order.get(i); ++i) computed.methods.get(k++).accept(cv);
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                splice();
+                ++i;
+                return super.visitMethod(access, name, descriptor, signature, exceptions);
+            }
+
+            @Override
+            public void visitEnd() {
+                splice();
+                super.visitEnd();
+            }
+        }, 0);
+        return writer.toByteArray();
+    }
+}
@@ -22,7 +22,8 @@ final class InvocationVisitor extends AnalyzerAdapter implements LinkedVisitor {
     private Map<Object, Map.Entry<Label, Integer>> labels;
     private final TypeMap types;
     private final BridgeVisitor caller;
-    private final String method;
+    private final String method, signature;
+    private final int changes;
     private int line;
 
     InvocationVisitor(BridgeVisitor caller, int access, String name, String descriptor, MethodVisitor delegate) {
@@ -30,6 +31,8 @@ final class InvocationVisitor extends AnalyzerAdapter implements LinkedVisitor {
         this.types = caller.types;
         this.caller = caller;
         this.method = name;
+        this.signature = name + descriptor;
+        this.changes = caller.invocations + caller.removals;
     }
 
     @Override
@@ -64,6 +67,7 @@ final class InvocationVisitor extends AnalyzerAdapter implements LinkedVisitor {
     @Override
     public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
         if (opcode == GETSTATIC && "bridge/Invocation".equals(owner) && "LANGUAGE_LEVEL".equals(name)) {
+            caller.dirty.add(signature);
             final class LANGUAGE_LEVEL extends MethodVisitor implements LinkedVisitor {
                 private MethodVisitor parent;
                 private int version;
@@ -243,6 +247,12 @@ final class InvocationVisitor extends AnalyzerAdapter implements LinkedVisitor {
         super.visitMaxs(maxStack, maxLocals);
     }
 
+    @Override
+    public void visitEnd() {
+        if (caller.invocations + caller.removals != changes) caller.dirty.add(signature);
+        super.visitEnd();
+    }
+
     @Override
     public void visitTypeInsn(int opcode, String type) {
         if (opcode == NEW) {
@@ -480,11 +490,15 @@ final class InvocationVisitor extends AnalyzerAdapter implements LinkedVisitor {
                     }
 
                     @Override
-                    public void visitOperation(int opcode, Runnable op) {
+                    public void visitOperation(int opcode, int op) {
                         queue(op);
                     }
 
                     private void queue(Runnable operation) {
+                        queue(ops.task(operation));
+                    }
+
+                    private void queue(int operation) {
                         if (state <= 0x05) {
                             primitive = null;
                             ops.add(operation);
@@ -492,12 +506,12 @@ final class InvocationVisitor extends AnalyzerAdapter implements LinkedVisitor {
                             state = 0x07; // this is a hack that temporarily hides the internal top known stack value ...
                             final Object hack = (stack.size() == 0)? params : stack.remove(stack.size() - 1);
                             if (returns == null) returns = defaults.get();
-                            for (Runnable op : ops) op.run();
+                            ops.accept(mv);
                             cast(mv, returns, casted);        // ... fixing input and type detection for nested invocations
                             if (hack != params) stack.add(("java/lang/Object".equals(hack))? box(returns.type).getInternalName() : hack);
                             if (((LinkedVisitor) parent).setDelegate(mv) instanceof LinkedVisitor) ((LinkedVisitor) mv).setParent(parent);
                             ++caller.invocations;
-                            operation.run();
+                            ops.run(operation, mv);
                         } else {
                             throw exception("Illegal state [0x0" + Integer.toHexString(state) + ']');
                         }
@@ -842,7 +856,7 @@ final class InvocationVisitor extends AnalyzerAdapter implements LinkedVisitor {
 
                                                 switch (name) {
                                                     case "getAndSet":
-                                                        ops.add(virtual, () -> {
+                                                        ops.add(virtual, ops.task(() -> {
                                                             final int size;
                                                             if ((size = size(casted)) != VOID_SORT) {
                                                                 if (virtual == 0) {
@@ -864,16 +878,16 @@ final class InvocationVisitor extends AnalyzerAdapter implements LinkedVisitor {
                                                             } else {// disable casting
                                                                 casted = returns;
                                                             }
-                                                        });
+                                                        }));
                                                         break;
                                                     case "set":
                                                         casted = arg;
                                                         defaults = () -> arg;
-                                                        ops.add(() -> returns = arg);
-                                                        ops.add(index, () -> dup(arg));
+                                                        ops.add(ops.task(() -> returns = arg));
+                                                        ops.add(index, ops.task(() -> dup(arg)));
                                                         break;
                                                     case "setAndGet":
-                                                        ops.add(index + 1, () -> dup(returns));
+                                                        ops.add(index + 1, ops.task(() -> dup(returns)));
                                                         break;
                                                     default:
                                                         throw exception("Unknown write operation [." + name + "()]");
@@ -0,0 +1,233 @@
+package bridge.mvn;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.*;
+
+// Reads and writes zip archives at the record level, so that untouched entries can be copied without being inflated and recompressed.
+// Zip64 archives are not supported.
+final class JarCopier implements Closeable {
+    private static final int LOC = 0x04034b50, CEN = 0x02014b50, END = 0x06054b50, EXT = 0x08074b50;
+    private static final int STORED = 0, DEFLATED = 8;
+    static final int DOS_EPOCH = 0x00210000;
+    final List<Entry> entries;
+    private final FileChannel channel;
+    private final File file;
+    final byte[] comment;
+
+    static final class Entry {
+        final String name;
+        final int flags, method, time;
+        final long crc, compressed, size, offset;
+        private final byte[] record;
+
+        private Entry(byte[] record, ByteBuffer buffer) {
+            this.record = record;
+            this.flags = u2(buffer, 8);
+            this.method = u2(buffer, 10);
+            this.time = buffer.getInt(12);
+            this.crc = u4(buffer, 16);
+            this.compressed = u4(buffer, 20);
+            this.size = u4(buffer, 24);
+            this.offset = u4(buffer, 42);
+            this.name = new String(record, 46, u2(buffer, 28), UTF_8);
+        }
+    }
+
+    JarCopier(File file) throws IOException {
+        this.channel = FileChannel.open((this.file = file).toPath(), READ);
+        try {
+            final long length = channel.size();
+            final int tail = (int) Math.min(length, 22 + 0xFFFF);
+            final ByteBuffer buffer = read(length - tail, tail);
+            int end = tail - 22;
+            while (end >= 0 && buffer.getInt(end) != END) --end;
+            if (end < 0) throw new ZipException("Not a zip archive: " + file);
+
+            final int count = u2(buffer, end + 10);
+            final long size = u4(buffer, end + 12), offset = u4(buffer, end + 16);
+            if (count == 0xFFFF || size == 0xFFFFFFFFL || offset == 0xFFFFFFFFL) throw new ZipException("Zip64 archives are not supported: " + file);
+            buffer.get(end + 22, comment = new byte[Math.min(u2(buffer, end + 20), tail - end - 22)]);
+
+            final ByteBuffer central = read(offset, (int) size);
+            entries = new ArrayList<>(count);
+            for (int i = 0, position = 0; i != count; ++i) {
+                if (central.getInt(position) != CEN) throw new ZipException("Invalid central directory: " + file);
+                final byte[] record = new byte[46 + u2(central, position + 28) + u2(central, position + 30) + u2(central, position + 32)];
+                central.get(position, record);
+                final Entry entry = new Entry(record, ByteBuffer.wrap(record).order(ByteOrder.LITTLE_ENDIAN));
+                if (entry.compressed == 0xFFFFFFFFL || entry.size == 0xFFFFFFFFL || entry.offset == 0xFFFFFFFFL) throw new ZipException("Zip64 archives are not supported: " + file);
+                entries.add(entry);
+                position += record.length;
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new ZipException("Unexpected end of archive: " + file);
+        }
+        return buffer;
+    }
+
+    private long data(Entry entry) throws IOException {
+        final ByteBuffer header = read(entry.offset, 30);
+        if (header.getInt(0) != LOC) throw new ZipException("Invalid local header: " + entry.name);
+        return entry.offset + 30 + u2(header, 26) + u2(header, 28);
+    }
+
+    byte[] read(Entry entry) throws IOException {
+        final long position = data(entry);
+        switch (entry.method) {
+            case STORED:
+                return read(position, (int) entry.size).array();
+            case DEFLATED:
+                final byte[] input = new byte[(int) entry.compressed + 1];
+                read(position, input.length - 1).get(0, input, 0, input.length - 1);
+                final byte[] output = new byte[(int) entry.size];
+                final Inflater inflater = new Inflater(true);
+                try {
+                    inflater.setInput(input);
+                    for (int i = 0; i != output.length;) {
+                        final int length;
+                        if ((length = inflater.inflate(output, i, output.length - i)) == 0 && (inflater.finished() || inflater.needsInput())) {
+                            throw new ZipException("Truncated entry: " + entry.name);
+                        }
+                        i += length;
+                    }
+                } catch (DataFormatException e) {
+                    throw new ZipException("Invalid entry: " + entry.name);
+                } finally {
+                    inflater.end();
+                }
+                return output;
+            default:
+                throw new ZipException("Unsupported compression method " + entry.method + ": " + entry.name);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    static final class Output implements Closeable {
+        private final ByteArrayOutputStream central = new ByteArrayOutputStream();
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private final byte[] buffer = new byte[8192];
+        private final FileChannel channel;
+        private long position;
+        private int count;
+
+        Output(Path path) throws IOException {
+            this.channel = FileChannel.open(path, CREATE, TRUNCATE_EXISTING, WRITE);
+        }
+
+        private void entry() throws ZipException {
+            if (position > 0xFFFFFFFFL || ++count > 0xFFFF) throw new ZipException("Zip64 archives are not supported");
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) position += channel.write(buffer);
+        }
+
+        void copy(JarCopier source, Entry entry) throws IOException {
+            entry();
+            final long offset = position;
+            long length = source.data(entry) - entry.offset + entry.compressed;
+            if ((entry.flags & 0x08) != 0) {
+                length += (source.read(entry.offset + length, 4).getInt(0) == EXT)? 16 : 12;
+            }
+            for (long i = 0; i < length;) {
+                i += source.channel.transferTo(entry.offset + i, length - i, channel);
+            }
+            position += length;
+
+            final byte[] record = entry.record.clone();
+            ByteBuffer.wrap(record).order(ByteOrder.LITTLE_ENDIAN).putInt(42, (int) offset);
+            central.write(record);
+        }
+
+        void write(String name, int time, byte[] data) throws IOException {
+            entry();
+            final CRC32 crc = new CRC32();
+            crc.update(data);
+
+            final ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length);
+            deflater.reset();
+            deflater.setInput(data);
+            deflater.finish();
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            final int method;
+            if (compressed.size() < data.length) {
+                method = DEFLATED;
+            } else {
+                method = STORED;
+                compressed.reset();
+                compressed.write(data);
+            }
+
+            final byte[] path = name.getBytes(UTF_8);
+            final ByteBuffer header = ByteBuffer.allocate(30 + path.length).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(LOC).putShort((short) 20).putShort((short) 0x0800).putShort((short) method).putInt(time)
+                    .putInt((int) crc.getValue()).putInt(compressed.size()).putInt(data.length)
+                    .putShort((short) path.length).putShort((short) 0).put(path);
+            final ByteBuffer record = ByteBuffer.allocate(46 + path.length).order(ByteOrder.LITTLE_ENDIAN);
+            record.putInt(CEN).putShort((short) 20).putShort((short) 20).putShort((short) 0x0800).putShort((short) method).putInt(time)
+                    .putInt((int) crc.getValue()).putInt(compressed.size()).putInt(data.length)
+                    .putShort((short) path.length).putShort((short) 0).putShort((short) 0).putShort((short) 0).putShort((short) 0)
+                    .putInt(0).putInt((int) position).put(path);
+
+            write(header);
+            write(ByteBuffer.wrap(compressed.toByteArray()).position(compressed.size()));
+            central.write(record.array());
+        }
+
+        void finish(byte[] comment) throws IOException {
+            final long offset = position;
+            write(ByteBuffer.wrap(central.toByteArray()).position(central.size()));
+            if (position > 0xFFFFFFFFL) throw new ZipException("Zip64 archives are not supported");
+
+            final ByteBuffer end = ByteBuffer.allocate(22 + comment.length).order(ByteOrder.LITTLE_ENDIAN);
+            end.putInt(END).putShort((short) 0).putShort((short) 0).putShort((short) count).putShort((short) count)
+                    .putInt(central.size()).putInt((int) offset).putShort((short) comment.length).put(comment);
+            write(end);
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            channel.close();
+        }
+    }
+
+    private static int u2(ByteBuffer buffer, int index) {
+        return buffer.getShort(index) & 0xFFFF;
+    }
+
+    private static long u4(ByteBuffer buffer, int index) {
+        return buffer.getInt(index) & 0xFFFFFFFFL;
+    }
+}
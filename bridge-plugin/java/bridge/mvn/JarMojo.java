@@ -0,0 +1,203 @@
+package bridge.mvn;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.Future;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Compiles bridge features in application jars
+ */
+@Mojo(
+        name = "jar",
+        defaultPhase = LifecyclePhase.PACKAGE,
+        requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME,
+        requiresDependencyCollection = ResolutionScope.COMPILE_PLUS_RUNTIME,
+        threadSafe = true
+)
+public final class JarMojo extends AbstractBridgeMojo {
+    private static final Attributes.Name MULTI_RELEASE = new Attributes.Name("Multi-Release");
+    private static final String VERSIONS = "META-INF/versions/";
+
+    /**
+     * The jar to read classes from
+     */
+    @Parameter(property = "bridge.input", defaultValue = "${project.build.directory}/${project.build.finalName}.jar")
+    private File input;
+
+    /**
+     * The jar to write recompiled classes to (defaults to replacing the input jar)
+     */
+    @Parameter(property = "bridge.output")
+    private File output;
+
+    /**
+     * The directory to store incremental build state in, which tells lazy builds what the output jar was written from
+     */
+    @Parameter(property = "bridge.state", defaultValue = "${project.build.directory}/bridge-state")
+    private File state;
+
+    @Override
+    void execute(BridgeCompiler compiler, boolean lazy) throws Throwable {
+        final Log log = getLog();
+        final File output = (this.output == null)? input : this.output;
+        if (!input.isFile()) throw new FileNotFoundException("Input jar does not exist: " + input);
+        final File marker = (state == null)? null : new File(state, output.getName() + '.' + String.format("%08x", output.getAbsolutePath().hashCode()) + ".jar");
+        if (lazy && ((marker == null)? output != input && output.isFile() && output.lastModified() >= input.lastModified() : current(marker, output, compiler.flags))) {
+            log.info("Nothing to recompile");
+            return;
+        }
+
+        final Path target = output.toPath();
+        final File directory = output.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+        final Path temp = Files.createTempFile(directory.toPath(), output.getName(), ".tmp");
+        try {
+            final String resolution;
+            long scantime, comptime, time;
+            try (JarCopier jar = new JarCopier(input)) {
+                log.info("Resolving class hierarchy...");
+                scantime = System.nanoTime();
+                final List<JarCopier.Entry> classes = new ArrayList<>();
+                final List<byte[]> sources = new ArrayList<>();
+                JarCopier.Entry manifest = null;
+                for (JarCopier.Entry entry : jar.entries) {
+                    final String name = entry.name;
+                    if (name.equalsIgnoreCase(JarFile.MANIFEST_NAME)) {
+                        manifest = entry;
+                    } else if (name.endsWith(".class") && !name.startsWith(VERSIONS)) {
+                        time = System.nanoTime();
+                        final byte[] data = jar.read(entry);
+                        compiler.report.read.add(System.nanoTime() - time);
+                        if (compiler.add(name, data) == null) continue;
+                        if (log.isDebugEnabled()) log.debug(" + " + name);
+                        classes.add(entry);
+                        sources.add(data);
+                    }
+                }
+
+                resolution = compiler.resolve(classpath(artifacts()));
+                scantime = System.nanoTime() - scantime;
+                log.info("");
+                log.info("Building bridges...");
+                comptime = System.nanoTime();
+                final List<Future<BridgeCompiler.Result>> futures = new ArrayList<>(classes.size());
+                for (int i = 0; i != classes.size(); ++i) {
+                    final String name = classes.get(i).name;
+                    final byte[] data = sources.get(i);
+                    futures.add(compiler.submit(() -> compiler.transform(name, data)));
+                }
+                final Set<String> recompiled = new HashSet<>();
+                final Map<String, byte[]> replacements = new HashMap<>();
+                final Map<String, byte[]> forks = new LinkedHashMap<>();
+                final Map<String, Integer> times = new HashMap<>();
+                for (int i = 0; i != classes.size(); ++i) {
+                    final JarCopier.Entry entry = classes.get(i);
+                    final BridgeCompiler.Result result = BridgeCompiler.join(futures.get(i));
+                    if (log.isDebugEnabled()) log.debug("<- " + entry.name);
+                    if (result.message != null) log.info(result.message);
+                    if (result.data != null && !Arrays.equals(result.data, sources.get(i))) replacements.put(entry.name, result.data);
+                    for (int k = 0; k != result.forks.length; ++k) {
+                        final String name = result.fork(k);
+                        forks.put(name, result.versions[k]);
+                        times.put(name, entry.time);
+                    }
+                    recompiled.add(entry.name);
+                    sources.set(i, null);
+                }
+
+                byte[] release = null;
+                if (!forks.isEmpty()) {
+                    final Manifest mf = (manifest == null)? new Manifest() : new Manifest(new ByteArrayInputStream(jar.read(manifest)));
+                    final Attributes attributes = mf.getMainAttributes();
+                    if (!"true".equalsIgnoreCase(attributes.getValue(MULTI_RELEASE))) {
+                        attributes.putIfAbsent(Attributes.Name.MANIFEST_VERSION, "1.0");
+                        attributes.put(MULTI_RELEASE, "true");
+                        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                        mf.write(out);
+                        release = out.toByteArray();
+                    }
+                }
+
+                time = System.nanoTime();
+                try (JarCopier.Output out = new JarCopier.Output(temp)) {
+                    if (release != null && manifest == null) out.write(JarFile.MANIFEST_NAME, JarCopier.DOS_EPOCH, release);
+                    for (JarCopier.Entry entry : jar.entries) {
+                        final byte[] data;
+                        if (forks.containsKey(entry.name) || fork(entry.name, recompiled)) {
+                            if (log.isDebugEnabled()) log.debug("-x " + entry.name);
+                        } else if (entry == manifest && release != null) {
+                            out.write(entry.name, entry.time, release);
+                        } else if ((data = replacements.get(entry.name)) != null) {
+                            out.write(entry.name, entry.time, data);
+                        } else {
+                            out.copy(jar, entry);
+                        }
+                    }
+                    for (Map.Entry<String, byte[]> e : forks.entrySet()) {
+                        out.write(e.getKey(), times.get(e.getKey()), e.getValue());
+                    }
+                    out.finish(jar.comment);
+                }
+            }
+
+            // The input jar has been closed by now, since open files cannot be replaced on every platform
+            if (output.isFile() && Files.mismatch(temp, target) == -1) {
+                if (log.isDebugEnabled()) log.debug("== " + output);
+            } else {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            if (marker != null) mark(marker, output, compiler.flags);
+            compiler.report.write.add(System.nanoTime() - time);
+
+            comptime = System.nanoTime() - comptime;
+            log.info("");
+            log.info("Hierarchy resolved in " + BridgeCompiler.humanize(scantime) + resolution);
+            log.info("Recompiled in " + BridgeCompiler.humanize(comptime));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Forks from an earlier pass would shadow the classes they came from, so they are dropped whenever those classes are recompiled
+    private static boolean fork(String name, Set<String> recompiled) {
+        final int i;
+        return name.startsWith(VERSIONS) && (i = name.indexOf('/', VERSIONS.length())) > 0 && recompiled.contains(name.substring(i + 1));
+    }
+
+    // The state directory remembers which input, plugin version and flags the output was written from, since timestamps alone cannot tell when those change
+    private boolean current(File marker, File output, int flags) throws IOException {
+        if (!marker.isFile() || !output.isFile()) return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(marker.toPath())))) {
+            return in.readUTF().equals(version()) && in.readInt() == flags && in.readLong() == input.length() && in.readLong() == input.lastModified() &&
+                    in.readLong() == output.length() && in.readLong() == output.lastModified();
+        } catch (EOFException | UTFDataFormatException e) {
+            return false;
+        }
+    }
+
+    private void mark(File marker, File output, int flags) throws IOException {
+        marker.getAbsoluteFile().getParentFile().mkdirs();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(marker.toPath())))) {
+            out.writeUTF(version());
+            out.writeInt(flags);
+            out.writeLong(input.length());
+            out.writeLong(input.lastModified());
+            out.writeLong(output.length());
+            out.writeLong(output.lastModified());
+        }
+    }
+
+    private String version() {
+        final String version;
+        return ((version = execution.getVersion()) == null)? "" : version;
+    }
+}
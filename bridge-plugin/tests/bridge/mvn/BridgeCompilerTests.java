@@ -0,0 +1,42 @@
+package bridge.mvn;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BridgeCompilerTests {
+
+    public void testUnknownRelease() throws Throwable {
+        if (!warnings(17).isEmpty()) throw new AssertionError("Warned about Java 17: " + warnings(17));
+        for (int release : new int[] {1, Integer.MAX_VALUE}) {
+            final List<String> warnings = warnings(release);
+            if (warnings.size() != 1 || !warnings.getFirst().contains("Java " + release + ' ')) throw new AssertionError("Unexpected warnings for Java " + release + ": " + warnings);
+        }
+    }
+
+    private static List<String> warnings(int release) throws Throwable {
+        final List<String> warnings = new ArrayList<>();
+        try (BridgeCompiler compiler = new BridgeCompiler(0, release, 1, null, new BridgeCompiler.Logger() {
+            @Override
+            public boolean isDebugEnabled() {
+                return false;
+            }
+
+            @Override
+            public void debug(String message) {}
+
+            @Override
+            public void info(String message) {}
+
+            @Override
+            public void warn(String message) {
+                warnings.add(message);
+            }
+        })) {
+            // The hierarchy still resolves against whichever release stands in
+            if (!compiler.types.loadClass("java/util/ArrayList").implemented(compiler.types.loadClass("java/util/List"))) {
+                throw new AssertionError("Java " + release + " could not resolve java/util/ArrayList");
+            }
+        }
+        return warnings;
+    }
+}
@@ -0,0 +1,117 @@
+package bridge.mvn;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+public class BridgeMojoTests {
+    private static final String PARENT = "test/Parent.class", CHILD = "test/Child.class", OTHER = "test/Other.class";
+    private static final String FORK = "META-INF/versions/17/test/Child.class";
+
+    public void testSupertypeChange() throws Throwable {
+        final File classes = Fixtures.directory(), state = Fixtures.directory();
+        Fixtures.write(classes, PARENT, Fixtures.type("test/Parent", "java/lang/Object"));
+        Fixtures.write(classes, CHILD, Fixtures.forked("test/Child", "test/Parent", 17));
+        Fixtures.write(classes, OTHER, Fixtures.type("test/Other", "java/lang/Object"));
+        expect(run(classes, state, false), PARENT, CHILD, OTHER);
+        if (!new File(classes, FORK).isFile()) throw new AssertionError("Missing fork: " + FORK);
+        expect(run(classes, state, true));
+
+        Fixtures.write(classes, PARENT, Fixtures.type("test/Parent", "java/lang/Object", "java/io/Serializable"));
+        expect(run(classes, state, true), PARENT, CHILD);
+        expect(run(classes, state, true));
+    }
+
+    public void testRemovedFork() throws Throwable {
+        final File classes = Fixtures.directory(), state = Fixtures.directory();
+        final File fork = new File(classes, FORK);
+        Fixtures.write(classes, CHILD, Fixtures.forked("test/Child", "java/lang/Object", 17));
+        Fixtures.write(classes, OTHER, Fixtures.forked("test/Other", "java/lang/Object", 21));
+        run(classes, state, false);
+        if (!fork.isFile()) throw new AssertionError("Missing fork: " + fork);
+
+        Fixtures.write(classes, CHILD, Fixtures.type("test/Child", "java/lang/Object"));
+        expect(run(classes, state, true), CHILD);
+        if (fork.exists()) throw new AssertionError("Stale fork: " + fork);
+
+        final File other = new File(classes, "META-INF/versions/21/test/Other.class");
+        if (!other.isFile()) throw new AssertionError("Missing fork: " + other);
+        if (!new File(classes, OTHER).delete()) throw new AssertionError("Could not delete " + OTHER);
+        expect(run(classes, state, true));
+        if (other.exists()) throw new AssertionError("Stale fork: " + other);
+    }
+
+    public void testAdoption() throws Throwable {
+        final File classes = Fixtures.directory(), state = Fixtures.directory();
+        Fixtures.write(classes, PARENT, Fixtures.type("test/Parent", "java/lang/Object"));
+        Fixtures.write(classes, CHILD, Fixtures.type("test/Child", "test/Parent"));
+        Fixtures.write(classes, OTHER, Fixtures.type("test/Other", "java/lang/Object"));
+        expect(run(classes, state, false), PARENT, CHILD, OTHER);
+
+        // Classes that were skipped before anything was adopted have to be checked again
+        Fixtures.write(classes, CHILD, Fixtures.adopted("test/Child", "test/Parent", "test/Other"));
+        expect(run(classes, state, true), PARENT, CHILD, OTHER);
+        expect(run(classes, state, true));
+    }
+
+    public void testCorruptManifest() throws Throwable {
+        final File classes = Fixtures.directory(), state = Fixtures.directory();
+        Fixtures.write(classes, CHILD, Fixtures.forked("test/Child", "java/lang/Object", 17));
+        run(classes, state, false);
+        final File manifest = manifest(state);
+        final String root = classes.getAbsolutePath();
+        if (BuildState.read(manifest, Fixtures.VERSION, root, 0) == null) throw new AssertionError("Unreadable manifest: " + manifest);
+
+        try (RandomAccessFile file = new RandomAccessFile(manifest, "rw")) {
+            file.setLength(file.length() / 2);
+        }
+        if (BuildState.read(manifest, Fixtures.VERSION, root, 0) != null) throw new AssertionError("Read a truncated manifest");
+
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(manifest))) {
+            out.writeInt(0x42524453);
+            out.writeInt(2);
+            out.writeUTF(Fixtures.VERSION);
+            out.writeUTF(root);
+            out.writeInt(0);
+            out.writeByte(0);
+            out.writeInt(Integer.MAX_VALUE);
+        }
+        if (BuildState.read(manifest, Fixtures.VERSION, root, 0) != null) throw new AssertionError("Read a manifest with an impossible count");
+
+        Fixtures.write(classes, CHILD, Fixtures.forked("test/Child", "java/lang/Object", 17));
+        new File(classes, CHILD).setLastModified(classes.lastModified() + 2000);
+        // Without a manifest, the fork from the last run cannot be told apart from a class of its own
+        expect(run(classes, state, true), CHILD, FORK);
+        if (BuildState.read(manifest, Fixtures.VERSION, root, 0) == null) throw new AssertionError("Manifest was not rewritten: " + manifest);
+        if (!new File(classes, FORK).isFile()) throw new AssertionError("Missing fork: " + FORK);
+    }
+
+    private static List<String> run(File classes, File state, boolean lazy) throws Throwable {
+        final Fixtures.Recorder log = new Fixtures.Recorder();
+        final BridgeMojo mojo = Fixtures.mojo(new BridgeMojo(),
+                "classpath", classes,
+                "includes", new String[] {"**/*.class"},
+                "excludes", new String[0],
+                "state", state
+        );
+        mojo.setLog(log);
+        try (BridgeCompiler compiler = new BridgeCompiler(0, 1, null, Fixtures.QUIET)) {
+            mojo.execute(compiler, lazy);
+        }
+        return log.recompiled;
+    }
+
+    private static void expect(List<String> recompiled, String... paths) {
+        final Object[] actual = recompiled.stream().sorted().toArray(), expected = Arrays.stream(paths).sorted().toArray();
+        if (!Arrays.equals(actual, expected)) throw new AssertionError("Recompiled " + recompiled + ", expected " + Arrays.toString(paths));
+    }
+
+    private static File manifest(File state) {
+        final File[] files = state.listFiles((directory, name) -> name.endsWith(".state"));
+        if (files == null || files.length != 1) throw new AssertionError("Expected one manifest in " + state);
+        return files[0];
+    }
+}
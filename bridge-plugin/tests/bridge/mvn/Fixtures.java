@@ -0,0 +1,159 @@
+package bridge.mvn;
+
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.descriptor.MojoDescriptor;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.objectweb.asm.Opcodes.*;
+
+// Generates the classes and plugin environments that the tests recompile
+final class Fixtures {
+    static final String VERSION = "test";
+    static final BridgeCompiler.Logger QUIET = new BridgeCompiler.Logger() {
+        @Override
+        public boolean isDebugEnabled() {
+            return false;
+        }
+
+        @Override
+        public void debug(String message) {}
+
+        @Override
+        public void info(String message) {}
+
+        @Override
+        public void warn(String message) {}
+    };
+
+    private Fixtures() {}
+
+    // A class with nothing to recompile
+    static byte[] type(String name, String extended, String... implemented) {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        cw.visit(V1_8, ACC_PUBLIC, name, null, extended, implemented);
+        constructor(cw, extended);
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    // A class that adopts a new parent
+    static byte[] adopted(String name, String extended, String parent) {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        cw.visit(V1_8, ACC_PUBLIC, name, null, extended, null);
+        final AnnotationVisitor av = cw.visitAnnotation("Lbridge/Adopt;", false);
+        av.visit("parent", Type.getObjectType(parent));
+        av.visitEnd();
+        constructor(cw, extended);
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    // A class that forks level() at the language level
+    static byte[] forked(String name, String extended, int level) {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        cw.visit(V1_8, ACC_PUBLIC, name, null, extended, null);
+        constructor(cw, extended);
+
+        final MethodVisitor mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, "level", "()Ljava/lang/String;", null, null);
+        final Label below = new Label();
+        mv.visitCode();
+        mv.visitFieldInsn(GETSTATIC, "bridge/Invocation", "LANGUAGE_LEVEL", "I");
+        mv.visitIntInsn(BIPUSH, level);
+        mv.visitJumpInsn(IF_ICMPLT, below);
+        mv.visitLdcInsn(Integer.toString(level));
+        mv.visitInsn(ARETURN);
+        mv.visitLabel(below);
+        mv.visitLdcInsn("base");
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void constructor(ClassWriter cw, String extended) {
+        final MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, extended, "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    static File directory() throws IOException {
+        final File directory = Files.createTempDirectory("bridge-test").toFile();
+        directory.deleteOnExit();
+        return directory;
+    }
+
+    static File write(File root, String path, byte[] data) throws IOException {
+        final File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), data);
+        return file;
+    }
+
+    // Sets up a goal the way maven would inject it
+    static <T extends AbstractBridgeMojo> T mojo(T mojo, Object... parameters) throws ReflectiveOperationException {
+        final PluginDescriptor plugin = new PluginDescriptor();
+        plugin.setVersion(VERSION);
+        final MojoDescriptor descriptor = new MojoDescriptor();
+        descriptor.setPluginDescriptor(plugin);
+        mojo.execution = new MojoExecution(descriptor);
+        mojo.project = new MavenProject();
+        mojo.project.setArtifacts(new LinkedHashSet<>());
+        set(mojo, "flags", new String[0]);
+        for (int i = 0; i != parameters.length; i += 2) set(mojo, (String) parameters[i], parameters[i + 1]);
+        return mojo;
+    }
+
+    private static void set(Object mojo, String name, Object value) throws ReflectiveOperationException {
+        for (Class<?> type = mojo.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                final Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(mojo, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                continue;
+            }
+        }
+        throw new NoSuchFieldException(name);
+    }
+
+    // Records the paths that a goal recompiles, as it reports them in debug messages
+    static final class Recorder extends SystemStreamLog {
+        final List<String> recompiled = new ArrayList<>();
+
+        @Override
+        public boolean isDebugEnabled() {
+            return true;
+        }
+
+        @Override
+        public void debug(CharSequence content) {
+            final String message;
+            if ((message = content.toString()).startsWith("<- ")) recompiled.add(message.substring(3));
+        }
+
+        @Override
+        public void info(CharSequence content) {}
+    }
+}
@@ -0,0 +1,94 @@
+package bridge.mvn;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+public class JarMojoTests {
+    private static final String CHILD = "test/Child.class", OTHER = "test/Other.class";
+    private static final String FORK = "META-INF/versions/17/test/Child.class", STALE = "META-INF/versions/21/test/Child.class";
+    private static final String RESOURCE = "META-INF/versions/21/test/Child.txt";
+
+    public void testInPlace() throws Throwable {
+        final File directory = Fixtures.directory(), state = Fixtures.directory();
+        final File jar = jar(new File(directory, "test.jar"));
+        expect(run(jar, state, true), CHILD, OTHER);
+
+        final List<String> entries = new ArrayList<>();
+        try (JarFile file = new JarFile(jar)) {
+            file.stream().forEach(entry -> entries.add(entry.getName()));
+            if (!"true".equals(file.getManifest().getMainAttributes().getValue("Multi-Release"))) throw new AssertionError("Not a multi-release jar: " + jar);
+        }
+        if (!entries.contains(FORK)) throw new AssertionError("Missing fork: " + FORK);
+        if (entries.contains(STALE)) throw new AssertionError("Stale fork: " + STALE);
+        if (!entries.contains(RESOURCE)) throw new AssertionError("Missing resource: " + RESOURCE);
+
+        // A jar that was recompiled in place is only recompiled again once something else has written it
+        expect(run(jar, state, true));
+        if (!jar.setLastModified(jar.lastModified() + 2000)) throw new AssertionError("Could not touch " + jar);
+        expect(run(jar, state, true), CHILD, OTHER);
+    }
+
+    public void testSeparateOutput() throws Throwable {
+        final File directory = Fixtures.directory(), state = Fixtures.directory();
+        final File jar = jar(new File(directory, "test.jar")), output = new File(directory, "test-bridged.jar");
+        expect(run(jar, output, state, 0, true), CHILD, OTHER);
+        expect(run(jar, output, state, 0, true));
+
+        // The output is newer than the input either way, so only the state directory can tell that these have changed
+        final int flags = BridgeCompiler.flag("KEEP_FRAMES");
+        expect(run(jar, output, state, flags, true), CHILD, OTHER);
+        expect(run(jar, output, state, flags, true));
+        if (!output.setLastModified(output.lastModified() + 2000)) throw new AssertionError("Could not touch " + output);
+        expect(run(jar, output, state, flags, true), CHILD, OTHER);
+        if (!output.delete()) throw new AssertionError("Could not delete " + output);
+        expect(run(jar, output, state, flags, true), CHILD, OTHER);
+        if (!output.isFile()) throw new AssertionError("Missing output: " + output);
+    }
+
+    private static File jar(File jar) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            put(out, CHILD, Fixtures.forked("test/Child", "java/lang/Object", 17));
+            put(out, OTHER, Fixtures.type("test/Other", "java/lang/Object"));
+            put(out, STALE, Fixtures.type("test/Child", "java/lang/Object"));
+            put(out, RESOURCE, "resource".getBytes(StandardCharsets.UTF_8));
+        }
+        return jar;
+    }
+
+    private static void put(JarOutputStream out, String name, byte[] data) throws IOException {
+        final ZipEntry entry = new JarEntry(name);
+        out.putNextEntry(entry);
+        out.write(data);
+        out.closeEntry();
+    }
+
+    private static List<String> run(File jar, File state, boolean lazy) throws Throwable {
+        return run(jar, null, state, 0, lazy);
+    }
+
+    private static List<String> run(File jar, File output, File state, int flags, boolean lazy) throws Throwable {
+        final Fixtures.Recorder log = new Fixtures.Recorder();
+        final JarMojo mojo = Fixtures.mojo(new JarMojo(),
+                "input", jar,
+                "output", output,
+                "state", state
+        );
+        mojo.setLog(log);
+        try (BridgeCompiler compiler = new BridgeCompiler(flags, 1, null, Fixtures.QUIET)) {
+            mojo.execute(compiler, lazy);
+        }
+        return log.recompiled;
+    }
+
+    private static void expect(List<String> recompiled, String... paths) {
+        if (!recompiled.equals(List.of(paths))) throw new AssertionError("Recompiled " + recompiled + ", expected " + List.of(paths));
+    }
+}
@@ -0,0 +1,5 @@
+package bridge.objects;
+
+class Foster {
+
+}
@@ -0,0 +1,10 @@
+package bridge.objects;
+
+// Never mentions the bridge API, but javac computed its frames against the hierarchy that Orphan had before it was adopted
+class Guardian {
+
+    static String merge(boolean adopted) {
+        final SuperAbstract value = (adopted)? new Orphan() : new Super("super");
+        return String.valueOf(value);
+    }
+}
@@ -0,0 +1,84 @@
+package bridge.objects;
+
+import bridge.Invocation;
+
+// Language level checks that leave dead code behind once they have been resolved
+@SuppressWarnings({"ConstantConditions", "finally", "UnusedAssignment"})
+final class Leftovers {
+    private Leftovers() {}
+
+    // dead code after goto test
+    static String GOTO() {
+        final String value;
+        if (Invocation.LANGUAGE_LEVEL < 22) {
+            value = "live";
+        } else {
+            value = "dead after goto";
+        }
+        return value;
+    }
+
+    // dead code after athrow test
+    static String ATHROW() {
+        if (Invocation.LANGUAGE_LEVEL < 22) throw new IllegalStateException("live");
+        return "dead after athrow";
+    }
+
+    // nested try regions that collapse entirely
+    static int TRY(int value) {
+        if (Invocation.LANGUAGE_LEVEL < 22) return value;
+        try {
+            try {
+                value = Integer.parseInt("dead in try");
+            } catch (NumberFormatException e) {
+                value = -1;
+            } finally {
+                ++value;
+            }
+        } catch (RuntimeException e) {
+            value = -2;
+        }
+        return value;
+    }
+
+    // overlapping try regions that only lose the blocks in between
+    static int OVERLAP(int value) {
+        try {
+            if (Invocation.LANGUAGE_LEVEL >= 22) {
+                try {
+                    value = Integer.parseInt("dead in nested try");
+                } finally {
+                    value = -1;
+                }
+            }
+            value += 1;
+        } catch (RuntimeException e) {
+            value = -2;
+        } finally {
+            value *= 2;
+        }
+        return value;
+    }
+
+    // locals that only exist in removed blocks
+    static String LOCAL(String value) {
+        final StringBuilder builder = new StringBuilder(value);
+        if (Invocation.LANGUAGE_LEVEL >= 22) {
+            final String dead = "dead local";
+            builder.append(dead);
+            for (int i = 0; i != 3; ++i) builder.append(i);
+        } else {
+            final String live = "!";
+            builder.append(live);
+        }
+        return builder.toString();
+    }
+
+    // locals that start in live blocks and end in removed ones
+    static int SPAN(String value) {
+        int count = value.length();
+        if (Invocation.LANGUAGE_LEVEL < 22) return count;
+        count += "dead after return".length();
+        return count;
+    }
+}
@@ -0,0 +1,12 @@
+package bridge.objects;
+
+import bridge.Adopt;
+
+@Adopt(parent = Foster.class)
+class Orphan extends SuperAbstract {
+
+    @Override
+    public String toString() {
+        return "orphan";
+    }
+}
@@ -1,6 +1,10 @@
 package bridge.objects;
 
+import java.io.InputStream;
 import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
 
 public class InvocationTests {
 
@@ -122,6 +126,63 @@ public class InvocationTests {
         synthetic(Jester.class.getDeclaredMethods());
     }
 
+    public void testAdoption() throws Throwable {
+        assert Orphan.class.getSuperclass() == Foster.class;
+        assert Guardian.merge(true).equals("orphan");
+        assert Guardian.merge(false) != null;
+    }
+
+    public void testCleanup() throws Throwable {
+        assert Leftovers.GOTO().equals("live");
+        try {
+            Leftovers.ATHROW();
+            assert false;
+        } catch (IllegalStateException e) {
+            assert e.getMessage().equals("live");
+        }
+        assert Leftovers.TRY(7) == 7;
+        assert Leftovers.OVERLAP(1) == 4;
+        assert Leftovers.LOCAL("live").equals("live!");
+        assert Leftovers.SPAN("four") == 4;
+        assert !resource("Leftovers.class").contains("dead") : "Unreachable code was recompiled";
+    }
+
+    public void testCleanupFork() throws Throwable {
+        final byte[] data = resource("/META-INF/versions/22/bridge/objects/Leftovers.class").getBytes(ISO_8859_1);
+        assert !new String(data, ISO_8859_1).contains("live") : "Unreachable code was recompiled";
+
+        // The fork is loaded on its own, so that it is verified even on older language levels
+        final Class<?> fork = new ClassLoader(InvocationTests.class.getClassLoader()) {
+            {
+                defineClass(Leftovers.class.getName(), data, 0, data.length);
+            }
+        }.loadClass(Leftovers.class.getName());
+        assert fork != Leftovers.class;
+        assert invoke(fork, "GOTO").equals("dead after goto");
+        assert invoke(fork, "ATHROW").equals("dead after athrow");
+        assert invoke(fork, "TRY", 7).equals(0);
+        assert invoke(fork, "OVERLAP", 1).equals(-4);
+        assert invoke(fork, "LOCAL", "fork").equals("forkdead local012");
+        assert invoke(fork, "SPAN", "four").equals(21);
+    }
+
+    private static String resource(String name) throws Throwable {
+        try (InputStream in = Leftovers.class.getResourceAsStream(name)) {
+            if (in == null) throw new AssertionError("Missing resource: " + name);
+            return new String(in.readAllBytes(), ISO_8859_1);
+        }
+    }
+
+    private static Object invoke(Class<?> type, String name, Object... args) throws Throwable {
+        for (Method method : type.getDeclaredMethods()) {
+            if (method.getName().equals(name)) {
+                method.setAccessible(true);
+                return method.invoke(null, args);
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
+
     private static void synthetic(Member[] members) throws Throwable {
         for (int i = 0, length = members.length; i != length; ++i) {
             if (!members[i].isSynthetic()) throw new AssertionError(members[i].toString());
@@ -0,0 +1 @@
+memberSearchIndex = [{"p":"bridge","c":"Bridge","l":"access()"},{"p":"bridge","c":"Unchecked","l":"cast(Object)","u":"cast(java.lang.Object)"},{"p":"bridge","c":"Invocation.Executor","l":"check()"},{"p":"bridge","c":"Unchecked","l":"check()"},{"p":"bridge","c":"Invocation.Executor","l":"check(Class<X>)","u":"check(java.lang.Class)"},{"p":"bridge","c":"Adopt","l":"clean()"},{"p":"bridge","c":"Bridge","l":"exceptions()"},{"p":"bridge","c":"Bridge","l":"FINAL"},{"p":"bridge","c":"Bridge","l":"fromIndex()"},{"p":"bridge","c":"Invocation.Accessor","l":"get()"},{"p":"bridge","c":"Invocation.Accessor","l":"getAndSet(Object)","u":"getAndSet(java.lang.Object)"},{"p":"bridge","c":"Adopt","l":"interfaces()"},{"p":"bridge","c":"Invocation","l":"Invocation(Class<?>)","u":"%3Cinit%3E(java.lang.Class)"},{"p":"bridge","c":"Invocation","l":"Invocation(Class<?>, Object)","u":"%3Cinit%3E(java.lang.Class,java.lang.Object)"},{"p":"bridge","c":"Invocation","l":"Invocation(Object)","u":"%3Cinit%3E(java.lang.Object)"},{"p":"bridge","c":"Invocation","l":"Invocation(String)","u":"%3Cinit%3E(java.lang.String)"},{"p":"bridge","c":"Invocation","l":"Invocation(String, Object)","u":"%3Cinit%3E(java.lang.String,java.lang.Object)"},{"p":"bridge","c":"Invocation.Executor","l":"invoke()"},{"p":"bridge","c":"Jump","l":"Jump(int)","u":"%3Cinit%3E(int)"},{"p":"bridge","c":"Jump","l":"Jump(String)","u":"%3Cinit%3E(java.lang.String)"},{"p":"bridge","c":"Label","l":"Label(int)","u":"%3Cinit%3E(int)"},{"p":"bridge","c":"Label","l":"Label(String)","u":"%3Cinit%3E(java.lang.String)"},{"p":"bridge","c":"Invocation","l":"LANGUAGE_LEVEL"},{"p":"bridge","c":"Bridge","l":"length()"},{"p":"bridge","c":"Bridge","l":"name()"},{"p":"bridge","c":"Invocation","l":"ofClassLiteral()"},{"p":"bridge","c":"Invocation","l":"ofConstructor()"},{"p":"bridge","c":"Invocation","l":"ofField(Class<?>, String)","u":"ofField(java.lang.Class,java.lang.String)"},{"p":"bridge","c":"Invocation","l":"ofField(String)","u":"ofField(java.lang.String)"},{"p":"bridge","c":"Invocation","l":"ofField(String, String)","u":"ofField(java.lang.String,java.lang.String)"},{"p":"bridge","c":"Invocation","l":"ofInstanceOf(Class<?>)","u":"ofInstanceOf(java.lang.Class)"},{"p":"bridge","c":"Invocation","l":"ofInstanceOf(String)","u":"ofInstanceOf(java.lang.String)"},{"p":"bridge","c":"Invocation","l":"ofMethod(Class<?>, String)","u":"ofMethod(java.lang.Class,java.lang.String)"},{"p":"bridge","c":"Invocation","l":"ofMethod(String)","u":"ofMethod(java.lang.String)"},{"p":"bridge","c":"Invocation","l":"ofMethod(String, String)","u":"ofMethod(java.lang.String,java.lang.String)"},{"p":"bridge","c":"Bridge","l":"params()"},{"p":"bridge","c":"Adopt","l":"parent()"},{"p":"bridge","c":"Bridge","l":"PRIVATE"},{"p":"bridge","c":"Bridge","l":"PROTECTED"},{"p":"bridge","c":"Bridge","l":"PUBLIC"},{"p":"bridge","c":"Bridge","l":"returns()"},{"p":"bridge","c":"Invocation.Accessor","l":"set(T)"},{"p":"bridge","c":"Invocation.Accessor","l":"setAndGet(Object)","u":"setAndGet(java.lang.Object)"},{"p":"bridge","c":"Adopt","l":"signature()"},{"p":"bridge","c":"Bridge","l":"signature()"},{"p":"bridge","c":"Bridge","l":"STATIC"},{"p":"bridge","c":"Bridge","l":"status()"},{"p":"bridge","c":"Bridge","l":"SYNTHETIC"},{"p":"bridge","c":"Bridge","l":"toIndex()"},{"p":"bridge","c":"Bridge","l":"TRANSIENT"},{"p":"bridge","c":"Unchecked","l":"Unchecked(Throwable)","u":"%3Cinit%3E(java.lang.Throwable)"},{"p":"bridge","c":"Bridge","l":"VARARGS"},{"p":"bridge","c":"Invocation.Executor","l":"with(Class<?>, Object)","u":"with(java.lang.Class,java.lang.Object)"},{"p":"bridge","c":"Invocation.Executor","l":"with(Object)","u":"with(java.lang.Object)"},{"p":"bridge","c":"Invocation.Executor","l":"with(String, Object)","u":"with(java.lang.String,java.lang.Object)"}];updateSearchResults();
\ No newline at end of file
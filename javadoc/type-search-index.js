@@ -0,0 +1 @@
+typeSearchIndex = [{"p":"bridge","l":"Invocation.Accessor"},{"p":"bridge","l":"Adopt"},{"l":"All Classes and Interfaces","u":"allclasses-index.html"},{"p":"bridge","l":"Bridge"},{"p":"bridge","l":"Invocation.Executor"},{"p":"bridge","l":"Invocation"},{"p":"bridge","l":"Jump"},{"p":"bridge","l":"Label"},{"p":"bridge","l":"Polymorphic"},{"p":"bridge","l":"Synthetic"},{"p":"bridge","l":"Unchecked"}];updateSearchResults();
\ No newline at end of file